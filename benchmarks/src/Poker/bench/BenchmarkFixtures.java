@@ -0,0 +1,47 @@
+package Poker.bench;
+
+import Poker.Card;
+import Poker.Deck;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Seeded fixtures shared by the benchmarks so that every run measures the same cards.
+ */
+final class BenchmarkFixtures {
+
+    static final long SEED = 0x5EED_CAFEL;
+
+    private BenchmarkFixtures() {
+        /* no instances */
+    }
+
+    /**
+     * Deals a number of distinct random cards out of a fresh deck.
+     *
+     * @param random - the seeded source of the deal
+     * @param count - the number of cards to deal
+     * @return - the dealt cards
+     */
+    static ArrayList<Card> deal(Random random, int count) {
+        ArrayList<Card> cards = new ArrayList<>(new Deck(52).getCards());
+
+        for (int i=0; i<count; i++) {    // partial Fisher-Yates, only the first count cards are needed
+            int j = i + random.nextInt(cards.size() - i);
+            Card swapped = cards.get(i);
+            cards.set(i, cards.get(j));
+            cards.set(j, swapped);
+        }
+
+        return new ArrayList<>(cards.subList(0, count));
+    }
+
+    static ArrayList<String> names(int players) {
+        ArrayList<String> names = new ArrayList<>();
+        for (int i=0; i<players; i++) {
+            names.add("Player" + i);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,34 @@
+package Poker.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark in this module with the gc profiler attached, so that each
+ * result also reports the bytes allocated per operation.
+ *
+ * Any arguments are used as benchmark name patterns (ex: "Showdown" or "HandEvaluation.getStrength").
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+
+        if (args.length == 0) {
+            builder.include("Poker\\.bench\\..*");
+        } else {
+            for (String pattern : args) {
+                builder.include(pattern);
+            }
+        }
+
+        Options options = builder
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,54 @@
+package Poker.bench;
+
+import Poker.Deck;
+import Poker.ShuffleSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures shuffling a full 52 card deck with each kind of ShuffleSource,
+ * and dealing a heads-up hand out of it followed by a reset.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeckBenchmark {
+
+    @Param({"seeded", "splittable", "threadLocal"})
+    public String source;
+
+    private Deck deck;
+
+    @Setup
+    public void setUp() {
+        deck = new Deck(52);
+
+        if (source.equals("seeded")) {
+            deck.setShuffleSource(ShuffleSource.seeded(BenchmarkFixtures.SEED));
+        } else if (source.equals("splittable")) {
+            deck.setShuffleSource(ShuffleSource.splittable(BenchmarkFixtures.SEED));
+        } else {
+            deck.setShuffleSource(ShuffleSource.threadLocal());
+        }
+    }
+
+    @Benchmark
+    public Deck shuffle() {
+        deck.shuffle();
+        return deck;
+    }
+
+    @Benchmark
+    public int drawAndReset() {
+        int sum = 0;
+        for (int i=0; i<9; i++) {      // two hands of two and a full board
+            sum += deck.drawCard().getIndex();
+        }
+        deck.reset();
+        return sum;
+    }
+}
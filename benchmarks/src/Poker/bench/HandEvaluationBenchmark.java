@@ -0,0 +1,115 @@
+package Poker.bench;
+
+import Poker.Card;
+import Poker.HandChecker;
+import Poker.HandEvaluator;
+import Poker.HandState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of evaluating and comparing single 7-card hands,
+ * both through the legacy value lists and through the int strengths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandEvaluationBenchmark {
+
+    private static final int HANDS = 1024;     // a power of two so the cursor can wrap with a mask
+
+    private final HandChecker handChecker = new HandChecker(new ArrayList<>());
+    private final HandState handState = new HandState();
+
+    private ArrayList<ArrayList<String>> handValues;
+    private int[][] handIndexes;
+    private long[] handMasks;
+    private ArrayList<ArrayList<int[]>> legacyValues;
+    private int[] strengths;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkFixtures.SEED);
+
+        handValues = new ArrayList<>();
+        handIndexes = new int[HANDS][];
+        handMasks = new long[HANDS];
+        legacyValues = new ArrayList<>();
+        strengths = new int[HANDS];
+
+        for (int i=0; i<HANDS; i++) {
+            ArrayList<Card> cards = BenchmarkFixtures.deal(random, 7);
+
+            ArrayList<String> values = new ArrayList<>();
+            handIndexes[i] = new int[cards.size()];
+            for (int j=0; j<cards.size(); j++) {
+                values.add(cards.get(j).getValue());
+                handIndexes[i][j] = cards.get(j).getIndex();
+            }
+            handValues.add(values);
+            handMasks[i] = Card.maskOf(handIndexes[i]);
+            legacyValues.add(handChecker.getValueOfHand(handIndexes[i]));
+            strengths[i] = HandEvaluator.evaluate(handMasks[i]);
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (HANDS - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public ArrayList<int[]> getValueOfHandFromStrings() {
+        return handChecker.getValueOfHand(handValues.get(next()));
+    }
+
+    @Benchmark
+    public ArrayList<int[]> getValueOfHandFromIndexes() {
+        return handChecker.getValueOfHand(handIndexes[next()]);
+    }
+
+    @Benchmark
+    public int getStrengthOfHand() {
+        return handChecker.getStrengthOfHand(handMasks[next()]);
+    }
+
+    /**
+     * Builds a hand street by street (hole cards, flop, turn, river), reading the strength after each street.
+     */
+    @Benchmark
+    public int handStateStreetByStreet() {
+        int[] cards = handIndexes[next()];
+        handState.reset();
+
+        handState.addCard(cards[0]);
+        handState.addCard(cards[1]);
+        int sum = handState.getStrength();
+        handState.addCard(cards[2]);
+        handState.addCard(cards[3]);
+        handState.addCard(cards[4]);
+        sum += handState.getStrength();
+        handState.addCard(cards[5]);
+        sum += handState.getStrength();
+        handState.addCard(cards[6]);
+        return sum + handState.getStrength();
+    }
+
+    @Benchmark
+    public int compareHandsLegacy() {
+        int first = next();
+        return handChecker.compareHands(legacyValues.get(first), legacyValues.get((first + 1) & (HANDS - 1)));
+    }
+
+    @Benchmark
+    public int compareHandsStrength() {
+        int first = next();
+        return handChecker.compareHands(strengths[first], strengths[(first + 1) & (HANDS - 1)]);
+    }
+}
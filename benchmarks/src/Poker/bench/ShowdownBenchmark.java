@@ -0,0 +1,76 @@
+package Poker.bench;
+
+import Poker.Card;
+import Poker.HandChecker;
+import Poker.Player;
+import Poker.ShowdownResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures HandChecker.determineWinner for a full board at every table size from 2 to 10 players,
+ * along with the side-effect-free showdown() on the same cards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShowdownBenchmark {
+
+    private static final int TABLES = 256;
+
+    @Param({"2", "3", "4", "5", "6", "7", "8", "9", "10"})
+    public int players;
+
+    private HandChecker[] handCheckers;
+    private ArrayList<ArrayList<Card>> boards;
+    private long[][] holeMasks;
+    private long[] boardMasks;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(BenchmarkFixtures.SEED + players);
+
+        handCheckers = new HandChecker[TABLES];
+        boards = new ArrayList<>();
+        holeMasks = new long[TABLES][players];
+        boardMasks = new long[TABLES];
+
+        for (int t=0; t<TABLES; t++) {
+            ArrayList<Card> cards = BenchmarkFixtures.deal(random, players * 2 + 5);
+            ArrayList<Player> seated = new ArrayList<>();
+
+            for (int i=0; i<players; i++) {
+                Player player = new Player("Player" + i, 1000);
+                player.giveCard(cards.get(i * 2));
+                player.giveCard(cards.get(i * 2 + 1));
+                seated.add(player);
+                holeMasks[t][i] = player.getHand().getCardMask();
+            }
+
+            handCheckers[t] = new HandChecker(seated);
+            boards.add(new ArrayList<>(cards.subList(players * 2, players * 2 + 5)));
+            for (Card card : boards.get(t)) {
+                boardMasks[t] |= card.getMask();
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] determineWinner() {
+        cursor = (cursor + 1) & (TABLES - 1);
+        return handCheckers[cursor].determineWinner(0, boards.get(cursor));
+    }
+
+    @Benchmark
+    public ShowdownResult showdown() {
+        cursor = (cursor + 1) & (TABLES - 1);
+        return handCheckers[cursor].showdown(holeMasks[cursor], boardMasks[cursor]);
+    }
+}
@@ -0,0 +1,45 @@
+package Poker.bench;
+
+import Poker.ShuffleSource;
+import Poker.Table;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one full hand at a Table without the UI:
+ * shuffle, deal to the players and the table, endGame, then resetGame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableCycleBenchmark {
+
+    @Param({"2", "6", "10"})
+    public int players;
+
+    private Table table;
+
+    @Setup
+    public void setUp() {
+        table = new Table(BenchmarkFixtures.names(players), ShuffleSource.seeded(BenchmarkFixtures.SEED));
+    }
+
+    @Benchmark
+    public int[] dealShowdownReset() {
+        table.shuffleDeck();
+        table.dealCardsToPlayers();
+        table.dealCardsToTable(0);      // the flop
+        table.dealCardsToTable(1);      // the turn
+        table.dealCardsToTable(2);      // the river
+
+        int[] winners = table.endGame();
+
+        table.resetAllBets();
+        table.resetGame();
+        return winners;
+    }
+}
@@ -0,0 +1,63 @@
+package Poker;
+
+/**
+ * One betting action a player can take: Raise (by an amount), Call or Fold.
+ * Is what a Strategy returns and what GameEngine.apply() takes, so bots and the
+ * Controller's buttons go through the same path.
+ *
+ * @author Tyler Newman
+ */
+public final class Action {
+
+    public enum Type { RAISE, CALL, FOLD }
+
+    private static final Action CALL = new Action(Type.CALL, 0);
+    private static final Action FOLD = new Action(Type.FOLD, 0);
+
+    private final Type type;
+    private final long amount;
+
+    private Action(Type type, long amount) {
+        this.type = type;
+        this.amount = amount;
+    }
+
+    /**
+     * Creates a raise of the highest bet by the given amount.
+     *
+     * @param amount - how much to raise the highest bet by, in chips
+     * @return - the raise
+     */
+    public static Action raise(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Cannot raise by a negative amount: " + amount);
+        }
+        return new Action(Type.RAISE, amount);
+    }
+
+    public static Action call() {
+        return CALL;
+    }
+
+    public static Action fold() {
+        return FOLD;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets how much the highest bet is raised by (0 for a call or fold).
+     *
+     * @return - the amount of the raise
+     */
+    public long getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.RAISE ? "Raise " + Chips.format(amount) : (type == Type.CALL ? "Call" : "Fold");
+    }
+}
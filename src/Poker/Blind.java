@@ -1,17 +1,20 @@
 package Poker;
 
+import java.nio.ByteBuffer;
+
 /**
  * Created by ty on 10/6/15.
  */
 public class Blind {
 
-    private double bigBlind;
-    private double smallBlind;
+    private long bigBlind;
+    private long smallBlind;
+    private long ante = 0;
     private int bigPosition;
     private int smallPosition;
     private int numOfPlayers;
 
-    public Blind(double big, double small, int players) {
+    public Blind(long big, long small, int players) {
         this.bigBlind = big;
         this.smallBlind = small;
 
@@ -21,19 +24,100 @@ public class Blind {
         this.numOfPlayers = players;
     }
 
+    /**
+     * Creates the Blinds for a game based on how much money each player starts with.
+     * The big blind is a twentieth of the starting money (between $10 and $50, in whole dollars)
+     * and the small blind is half of it.
+     *
+     * @param startingMoney - the money each player starts with
+     * @param players - the number of players in the game
+     * @return - the blinds for the game
+     */
+    public static Blind fromStartingMoney(long startingMoney, int players) {
+        long bigBlind = Chips.ofDollars(startingMoney / Chips.PER_DOLLAR / 20);
+        if (bigBlind > Chips.ofDollars(50)) {
+            bigBlind = Chips.ofDollars(50);
+        } else if (bigBlind < Chips.ofDollars(10)) {
+            bigBlind = Chips.ofDollars(10);
+        }
+        long smallBlind = Chips.ofDollars(bigBlind / Chips.PER_DOLLAR / 2);
+
+        return new Blind(bigBlind, smallBlind, players);
+    }
+
+    /**
+     * Moves the blinds one seat to the left. GameEngine moves them on past any seats
+     * without money when it posts them.
+     */
     public void advance() {
         bigPosition = (bigPosition + 1) % numOfPlayers;
         smallPosition = (smallPosition + 1) % numOfPlayers;
     }
 
-    public double getBigBlind() {
+    /**
+     * Changes the size of the blinds.
+     *
+     * @param big - the new big blind
+     * @param small - the new small blind
+     */
+    public void setBlinds(long big, long small) {
+        this.bigBlind = big;
+        this.smallBlind = small;
+    }
+
+    /**
+     * Changes the ante every player puts in before a hand (0 for none).
+     *
+     * @param ante - the new ante
+     */
+    public void setAnte(long ante) {
+        this.ante = ante;
+    }
+
+    /**
+     * Moves the blinds to the given positions.
+     *
+     * @param big - the position of the big blind
+     * @param small - the position of the small blind
+     */
+    public void setPositions(int big, int small) {
+        this.bigPosition = big;
+        this.smallPosition = small;
+    }
+
+    /**
+     * Writes the sizes and positions of the blinds for a TableCheckpoint.
+     *
+     * @param buffer - the buffer to write to
+     */
+    void writeCheckpoint(ByteBuffer buffer) {
+        TableProtocol.putVarLong(buffer, bigBlind);
+        TableProtocol.putVarLong(buffer, smallBlind);
+        TableProtocol.putVarLong(buffer, ante);
+        buffer.put((byte) bigPosition);
+        buffer.put((byte) smallPosition);
+    }
+
+    void readCheckpoint(ByteBuffer buffer) {
+        bigBlind = TableProtocol.getVarLong(buffer);
+        smallBlind = TableProtocol.getVarLong(buffer);
+        ante = TableProtocol.getVarLong(buffer);
+        bigPosition = buffer.get() & 0xFF;
+        smallPosition = buffer.get() & 0xFF;
+    }
+
+    public long getBigBlind() {
         return bigBlind;
     }
 
-    public double getSmallBlind() {
+    public long getSmallBlind() {
         return smallBlind;
     }
 
+    public long getAnte() {
+        return ante;
+    }
+
     public int getBigPosition(){
         return bigPosition;
     }
@@ -0,0 +1,152 @@
+package Poker;
+
+/**
+ * The blind levels of a tournament: the small blind, big blind and ante of each level and
+ * how long every level lasts, either a number of hands or an amount of time. Once the last
+ * level is reached the blinds stay there.
+ *
+ * A schedule never changes, so one schedule is shared by every table of a tournament.
+ * Levels by hands count the hands of each table on its own (so a table never has to look
+ * at the others), levels by time all count from when the tournament started.
+ *
+ * @author Tyler Newman
+ */
+public class BlindSchedule {
+
+    public enum Clock { HANDS, MILLIS }
+
+    private final Clock clock;
+    private final long levelLength;
+    private final Level[] levels;
+
+    /**
+     * Creates a schedule from the given levels.
+     *
+     * @param clock - whether the levels are counted in hands or in milliseconds
+     * @param levelLength - how many hands (or milliseconds) every level lasts
+     * @param levels - the levels, in the order they are played
+     */
+    public BlindSchedule(Clock clock, long levelLength, Level... levels) {
+        if (levelLength < 1) {
+            throw new IllegalArgumentException("A level must last at least one hand or millisecond");
+        }
+        if (levels.length == 0) {
+            throw new IllegalArgumentException("A schedule needs at least one level");
+        }
+        this.clock = clock;
+        this.levelLength = levelLength;
+        this.levels = levels.clone();
+    }
+
+    /**
+     * Creates the usual schedule for a starting stack: the first big blind is a hundredth of
+     * the stack, every level is about half again as big as the last one, and from the fifth
+     * level on every player also puts in an ante of a tenth of the big blind.
+     *
+     * @param startingStack - the chips every entrant starts with
+     * @param clock - whether the levels are counted in hands or in milliseconds
+     * @param levelLength - how many hands (or milliseconds) every level lasts
+     * @return - the schedule
+     */
+    public static BlindSchedule standard(long startingStack, Clock clock, long levelLength) {
+        long unit = Math.max(1, startingStack / 200);      // the first small blind
+        Level[] levels = new Level[20];
+        long small = unit;
+        for (int i=0; i<levels.length; i++) {
+            long big = small * 2;
+            long ante = i >= 4 ? big / 10 : 0;
+            levels[i] = new Level(small, big, ante);
+            small = roundDown(small + (small + 1) / 2, unit);
+        }
+        return new BlindSchedule(clock, levelLength, levels);
+    }
+
+    /**
+     * Rounds an amount down to two significant digits, and never below the given unit.
+     */
+    private static long roundDown(long amount, long unit) {
+        long step = 1;
+        while (amount / step >= 100) {
+            step *= 10;
+        }
+        return Math.max(unit, amount / step * step);
+    }
+
+    /**
+     * Gets the number of the level being played (0 is the first level).
+     *
+     * @param handsPlayed - the number of hands the table has played
+     * @param elapsedMillis - the time since the tournament started
+     * @return - the number of the level
+     */
+    public int getLevelNumber(long handsPlayed, long elapsedMillis) {
+        long played = clock == Clock.HANDS ? handsPlayed : elapsedMillis;
+        return (int) Math.min(levels.length - 1, played / levelLength);
+    }
+
+    public Level getLevel(int number) {
+        return levels[number];
+    }
+
+    public int getNumOfLevels() {
+        return levels.length;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public long getLevelLength() {
+        return levelLength;
+    }
+
+    /**
+     * Sets a table's blinds and ante to the level being played.
+     *
+     * @param blind - the blinds of the table
+     * @param handsPlayed - the number of hands the table has played
+     * @param elapsedMillis - the time since the tournament started
+     */
+    public void apply(Blind blind, long handsPlayed, long elapsedMillis) {
+        Level level = levels[getLevelNumber(handsPlayed, elapsedMillis)];
+        blind.setBlinds(level.getBigBlind(), level.getSmallBlind());
+        blind.setAnte(level.getAnte());
+    }
+
+    /**
+     * One level of a schedule, in chips.
+     */
+    public static final class Level {
+
+        private final long smallBlind;
+        private final long bigBlind;
+        private final long ante;
+
+        public Level(long smallBlind, long bigBlind, long ante) {
+            if (smallBlind < 0 || bigBlind < smallBlind || ante < 0) {
+                throw new IllegalArgumentException("A level needs 0 <= small blind <= big blind and an ante of at least 0");
+            }
+            this.smallBlind = smallBlind;
+            this.bigBlind = bigBlind;
+            this.ante = ante;
+        }
+
+        public long getSmallBlind() {
+            return smallBlind;
+        }
+
+        public long getBigBlind() {
+            return bigBlind;
+        }
+
+        public long getAnte() {
+            return ante;
+        }
+
+        @Override
+        public String toString() {
+            return Chips.format(smallBlind) + "/" + Chips.format(bigBlind)
+                    + (ante > 0 ? " ante " + Chips.format(ante) : "");
+        }
+    }
+}
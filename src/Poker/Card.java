@@ -3,15 +3,41 @@ package Poker;
 /**
  * Created by ty on 10/6/15.
  * @author Tyler Newman
+ *
+ * A single playing card. Each Card is identified by a compact index from 0 to 51
+ * (index = (number - 2) * 4 + suit) which is what the game logic works with, and
+ * by a 64-bit mask (1L << index) so that sets of cards can be stored in a single long.
+ * The string value (ex: "10-S") is only kept for the UI and the card image lookup.
+ *
+ * Suits are ordered {S, D, H, C} (0 - 3) and numbers run from 2 to 14 (Ace high).
+ *
+ * There are only ever 52 Card objects, one for each card, which are shared by every
+ * Deck, Hand and Table. They are obtained with Card.of() instead of being constructed.
  */
-
 public class Card {
+
+    public static final int NUMBER_OF_CARDS = 52;
+    public static final String[] SUITS = {"S", "D", "H", "C"};
+
+    private static final Card[] CARDS = new Card[NUMBER_OF_CARDS];    // the canonical card for each index
+
+    static {
+        for (int number=2; number<=14; number++) {
+            for (String suit : SUITS) {
+                Card card = new Card(number, suit);
+                CARDS[card.index] = card;
+            }
+        }
+    }
+
+    private final int index;
     private final String cardValue;
 
     /**
      * This constructor creates a Card with a specified number and suit.
+     * Is only used to build the 52 canonical cards, see Card.of().
      */
-    public Card(int cardNumber, String cardSuit) {
+    private Card(int cardNumber, String cardSuit) {
         String value;
         if (cardNumber == 11) {
             value = "J";
@@ -25,10 +51,182 @@ public class Card {
             value = String.valueOf(cardNumber);
         }
         this.cardValue = value + "-" + cardSuit;
+        this.index = indexOf(cardNumber, suitIndexOf(cardSuit));
+    }
+
+    /**
+     * Gets the shared Card for a card index.
+     *
+     * @param index - the index of the card (0 - 51)
+     * @return - the canonical Card with that index
+     */
+    public static Card of(int index) {
+        if (index < 0 || index >= NUMBER_OF_CARDS) {
+            throw new IllegalArgumentException("Not a valid card index: " + index);
+        }
+        return CARDS[index];
+    }
+
+    /**
+     * Gets the shared Card with a specified number and suit.
+     *
+     * @param cardNumber - the number of the card (2 - 14)
+     * @param cardSuit - the suit of the card ("S", "D", "H" or "C")
+     * @return - the canonical Card with that number and suit
+     */
+    public static Card of(int cardNumber, String cardSuit) {
+        return CARDS[indexOf(cardNumber, suitIndexOf(cardSuit))];
+    }
+
+    /**
+     * Gets the shared Card for a string value (ex: "10-S").
+     *
+     * @param value - the string value of the card
+     * @return - the canonical Card with that value
+     */
+    public static Card of(String value) {
+        return CARDS[indexOf(value)];
     }
 
     public String getValue() {
         return cardValue;
     }
 
+    /**
+     * Gets the compact index of the card (0 - 51).
+     *
+     * @return - the card's index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the card as a single bit of a 64-bit card mask.
+     *
+     * @return - the card's mask
+     */
+    public long getMask() {
+        return 1L << index;
+    }
+
+    /**
+     * Gets the number of the card (2 - 14, Aces are 14).
+     *
+     * @return - the card's number
+     */
+    public int getNumber() {
+        return numberOf(index);
+    }
+
+    /**
+     * Gets the suit of the card as an index into SUITS (0 - 3).
+     *
+     * @return - the card's suit index
+     */
+    public int getSuit() {
+        return suitOf(index);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return (other instanceof Card) && ((Card) other).index == index;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return cardValue;
+    }
+
+    /**
+     * Gets the index of a card from its number and suit index.
+     *
+     * @param number - the number of the card (2 - 14)
+     * @param suit - the suit index of the card (0 - 3)
+     * @return - the card's index
+     */
+    public static int indexOf(int number, int suit) {
+        if (number < 2 || number > 14 || suit < 0 || suit > 3) {
+            throw new IllegalArgumentException("Not a valid card: " + number + " of suit " + suit);
+        }
+        return ((number - 2) << 2) | suit;
+    }
+
+    /**
+     * Gets the index of a card from its string value (ex: "10-S" or "Q-H").
+     * Is only used where cards come in as strings (the UI and older callers).
+     *
+     * @param value - the string value of the card
+     * @return - the card's index
+     */
+    public static int indexOf(String value) {
+        int split = value.indexOf('-');
+        if (split < 1) {
+            throw new IllegalArgumentException("Not a valid card: " + value);
+        }
+        String number = value.substring(0, split);
+        int cardNumber;
+        switch (number) {
+            case "J": cardNumber = 11; break;
+            case "Q": cardNumber = 12; break;
+            case "K": cardNumber = 13; break;
+            case "A": cardNumber = 14; break;
+            default:
+                try {
+                    cardNumber = Integer.parseInt(number);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Not a valid card: " + value);
+                }
+        }
+        return indexOf(cardNumber, suitIndexOf(value.substring(split + 1)));
+    }
+
+    /**
+     * Gets the index of a suit string within SUITS.
+     *
+     * @param suit - the suit as a string ("S", "D", "H" or "C")
+     * @return - the suit index (0 - 3)
+     */
+    public static int suitIndexOf(String suit) {
+        for (int i=0; i<SUITS.length; i++) {
+            if (SUITS[i].equals(suit)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a valid suit: " + suit);
+    }
+
+    /**
+     * Gets the number (2 - 14) of a card index.
+     */
+    public static int numberOf(int index) {
+        return (index >>> 2) + 2;
+    }
+
+    /**
+     * Gets the suit index (0 - 3) of a card index.
+     */
+    public static int suitOf(int index) {
+        return index & 3;
+    }
+
+    /**
+     * Builds a 64-bit card mask out of an array of card indexes.
+     *
+     * @param indexes - the card indexes
+     * @return - a mask with one bit set for each card
+     */
+    public static long maskOf(int[] indexes) {
+        long mask = 0L;
+        for (int index : indexes) {
+            mask |= 1L << index;
+        }
+        return mask;
+    }
+
 }
@@ -0,0 +1,61 @@
+package Poker;
+
+import javafx.scene.image.Image;
+
+/**
+ * A cache of the decoded card images used by the Controller.
+ * Every card face and the card back is decoded from its PNG only once, either up front
+ * with preload() or the first time it is shown, and the same Image is reused after that.
+ *
+ * Is only used from the JavaFX application thread.
+ */
+public final class CardImages {
+
+    private static final Image[] FACES = new Image[Card.NUMBER_OF_CARDS];    // indexed by Card.getIndex()
+    private static Image back;
+
+    private CardImages() {
+        /* no instances */
+    }
+
+    /**
+     * Decodes every card face and the card back so that no image is decoded during a game.
+     */
+    public static void preload() {
+        for (int i=0; i<Card.NUMBER_OF_CARDS; i++) {
+            get(Card.of(i));
+        }
+        getBack();
+    }
+
+    /**
+     * Gets the image of a card's face.
+     *
+     * @param card - the card to show
+     * @return - the decoded image of the card
+     */
+    public static Image get(Card card) {
+        Image image = FACES[card.getIndex()];
+        if (image == null) {
+            image = load(card.getValue());
+            FACES[card.getIndex()] = image;
+        }
+        return image;
+    }
+
+    /**
+     * Gets the image of the back of a card.
+     *
+     * @return - the decoded card back image
+     */
+    public static Image getBack() {
+        if (back == null) {
+            back = load("card_back");
+        }
+        return back;
+    }
+
+    private static Image load(String name) {
+        return new Image(CardImages.class.getResource("cards/" + name + ".png").toExternalForm());
+    }
+}
@@ -0,0 +1,67 @@
+package Poker;
+
+import java.math.BigDecimal;
+
+/**
+ * Helpers for amounts of money, which are kept everywhere as whole chips in a long
+ * (one chip is one cent) so that bets, pots and payouts always add up exactly.
+ * Dollars only show up in the UI, where amounts are parsed and shown with format().
+ *
+ * @author Tyler Newman
+ */
+public final class Chips {
+
+    public static final long PER_DOLLAR = 100;
+
+    private Chips() {
+    }
+
+    /**
+     * Converts a whole number of dollars to chips.
+     *
+     * @param dollars - the number of dollars
+     * @return - the number of chips
+     */
+    public static long ofDollars(long dollars) {
+        return Math.multiplyExact(dollars, PER_DOLLAR);
+    }
+
+    /**
+     * Parses an amount of dollars typed in by a user (ex: "12", "12.5" or "12.50").
+     *
+     * @param text - the amount of dollars
+     * @return - the number of chips
+     * @throws NumberFormatException - if the text is not a number or has fractions of a cent
+     */
+    public static long parse(String text) {
+        try {
+            return new BigDecimal(text.trim()).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Not a whole number of cents: " + text);
+        }
+    }
+
+    /**
+     * Formats chips as dollars and cents (ex: 1250 is "12.50").
+     *
+     * @param chips - the number of chips
+     * @return - the amount in dollars
+     */
+    public static String format(long chips) {
+        return BigDecimal.valueOf(chips, 2).toPlainString();
+    }
+
+    /**
+     * Gets one winner's share when a pot is split. The pot is divided evenly and the odd
+     * chips that are left over go one at a time to the first winners, so the shares always
+     * add up to the whole pot. The caller decides the order of the winners (see Table.endGame()).
+     *
+     * @param pot - the chips being split
+     * @param ways - the number of winners
+     * @param place - the winner's place in the order the odd chips are given out (0 first)
+     * @return - the winner's share of the pot
+     */
+    public static long share(long pot, int ways, int place) {
+        return pot / ways + (place < pot % ways ? 1 : 0);
+    }
+}
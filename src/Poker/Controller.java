@@ -6,13 +6,9 @@ import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.util.ArrayList;
 
 public class Controller {
@@ -45,18 +41,14 @@ public class Controller {
     @FXML private ArrayList<ImageView> handCards;
 
     private Table table;
-    private Blind blind;
+    private GameEngine engine;      // runs the betting, the Controller only shows its state
     private ArrayList<String> names = new ArrayList<>();
     private ArrayList<Player> players;
-    private int tablePosition;
-    private double currentHighBet = 0.0;
-    private double roundHighBet = 50.0;
-    private String highestBettersName;
-    private int timeInRound = -1;
+    private int tablePosition;      // the position of the player being shown
     private boolean flipped = false;
-    private int numOfFoldedPlayers;
     private boolean initial = true;
-    private int roundsPlayedInGame = 0;
+    private StatsStore statsStore;
+    private boolean statsLoaded = false;    // the stats are only updated once they have been read
 
 
     public void getName(ActionEvent actionEvent) {
@@ -87,6 +79,7 @@ public class Controller {
 
     /**
      * Called when any of the command buttons are pressed.
+     * Passes the command on to the GameEngine and then shows the new state of the game.
      *
      * @param event - the action on the button
      */
@@ -96,144 +89,99 @@ public class Controller {
 
         liveInfoLabel.setText("");
 
-        Player currentPlayer = players.get(tablePosition);
-
         if (buttonLabel.equals("Raise")) {
-            Double bet = null;
-
+            long bet;
             try {
-                String input = betTextField.getText();
-                bet = Double.parseDouble(input);    // may throw exception
-
-                double total = (currentHighBet - currentPlayer.getCurrentBet()) + bet;
-                if (currentPlayer.getBalance() >= total) {      // if the user has enough money
-                    currentPlayer.bet(total);
-                    table.changePot(total);
-                    currentHighBet += bet;
-                    roundHighBet += bet;
-                    highestBettersName = currentPlayer.getName();
-
-                } else {
-                    betErrorLabel.setVisible(true);
-                    betErrorLabel.setText("Please enter a value you can bet.");
-                }
-
-            } catch (IllegalArgumentException e) {
+                bet = Chips.parse(betTextField.getText());    // may throw exception
+            } catch (NumberFormatException e) {
                 betTextField.setText("");
                 betErrorLabel.setVisible(true);
                 betErrorLabel.setText("Please enter a number value.");
+                return;
             }
-            if (bet != null) {    // if a number was entered
-                betTextField.setText("");
-                betErrorLabel.setText("");
-                betErrorLabel.setVisible(false);
 
+            if (bet < 0 || !engine.apply(Action.raise(bet))) {     // if the user can't bet that it is still their turn
+                betErrorLabel.setVisible(true);
+                betErrorLabel.setText("Please enter a value you can bet.");
+                return;
             }
 
-        } else if (buttonLabel.equals("Call")) {
-
-            double total = currentHighBet - currentPlayer.getCurrentBet();
-            if (currentPlayer.getCurrentBet() < currentHighBet
-                    && currentPlayer.getBalance() >= total) {   // if it is not the highest better and they have enough money
-                currentPlayer.bet(total);
-                table.changePot(total);
-            }
+            // a number was entered and bet
+            betTextField.setText("");
+            betErrorLabel.setText("");
+            betErrorLabel.setVisible(false);
 
-            if (highestBettersName.equals("")) {
-                // if the highest better folded, this player is now the highest better
-                highestBettersName = currentPlayer.getName();
-            }
+        } else if (buttonLabel.equals("Call")) {
+            engine.apply(Action.call());
 
         } else if (buttonLabel.equals("Fold")) {
-            currentPlayer.fold();
-            numOfFoldedPlayers++;
-            if (currentPlayer.getName().equals(highestBettersName)) {
-                // make the highest better nobody
-                highestBettersName = "";
-            }
+            engine.apply(Action.fold());
         }
 
-        updateCurrentStats(timeInRound == 3);
+        updateCurrentStats(false);
 
-        // update position
-        boolean done = false;
-        while (!done) {
-            tablePosition = (tablePosition + 1) % players.size();
-            if (!players.get(tablePosition).isFolded()) {   // if the next player isn't folded
-                done = true;
-            }
+        // show whoever's turn it is now
+        tablePosition = engine.getCurrentPosition();
+        if (engine.isHandOver()) {
+            showWinners();
+        } else {
             updateBoard(0);
         }
 
-        // update time in round
-        if (players.get(tablePosition).getName().equals(highestBettersName) || (players.size() - numOfFoldedPlayers) == 1) {
-            timeInRound++;
-            advanceRound();
-        }
-
     }
 
+    /**
+     * Starts a new hand in the GameEngine and shows the blinds that were posted.
+     */
     public void advanceRound() {
+        engine.startHand();
+        getBlindsForRound();
 
-        if (timeInRound == 3 || (players.size() - numOfFoldedPlayers) == 1) {
-            // end a round
-            int[] winners = table.endGame();
-            if (winners.length > 1) {     // if it is a tie
-                String text = "The round has ended in a tie between ";
-                for (int i=0; i<winners.length; i++) {
-                    if (i < winners.length - 1) {
-                        text += players.get(winners[i]).getName() + ", ";
-                    } else {
-                        text += "and " + players.get(winners[i]).getName() + ".";
-                    }
-                }
-                liveInfoLabel.setText(text);
+        if (engine.isHandOver()) {     // the blinds put everyone all-in, so the hand is already played out
+            tablePosition = engine.getCurrentPosition();
+            showWinners();
+            return;
+        }
 
-            } else {
-                liveInfoLabel.setText("Congratulations " + players.get(winners[0]).getName() +
-                        ", you have won the round and $" + table.getPot() + "!");
+        updateCurrentStats(false);  // not the end of the round yet, so give it false
+        armCommands();
+    }
 
+    /**
+     * Shows the winner(s) of the hand that just ended.
+     */
+    public void showWinners() {
+        int[] winners = engine.getWinners();
+        if (winners.length > 1) {     // if it is a tie
+            String text = "The round has ended in a tie between ";
+            for (int i=0; i<winners.length; i++) {
+                if (i < winners.length - 1) {
+                    text += players.get(winners[i]).getName() + ", ";
+                } else {
+                    text += "and " + players.get(winners[i]).getName() + ".";
+                }
             }
+            liveInfoLabel.setText(text);
 
-            roundsPlayedInGame++;
-            roundHighBet = 50.0;
-            updateBoard(winners[0]);
-            updateCurrentStats(true);   // it is the end of the round, so give it true
-            disarmCommands();
-
-        } else if (timeInRound == -1) {
-            // begin a round
-            table.shuffleDeck();
-            table.dealCardsToPlayers();
-            table.dealCardsToTable(timeInRound);
-            getBlindsForRound();
-
-            updateBoard(0);
-            updateCurrentStats(false);  // not the end of the round yet, so give it false
-            armCommands();
+        } else {
+            liveInfoLabel.setText("Congratulations " + players.get(winners[0]).getName() +
+                    ", you have won the round and $" + Chips.format(table.getSidePots().getPayout(winners[0])) + "!");
 
-        } else if (timeInRound < 3) {
-            // advance the round otherwise
-            table.dealCardsToTable(timeInRound);
-            roundHighBet = 0.0;
-            updateBoard(0);
-            updateCurrentStats(false);  // not the end of the round yet, so give it false
-            armCommands();
         }
 
+        updateBoard(winners[0]);
+        updateCurrentStats(true);   // it is the end of the round, so give it true
+        disarmCommands();
     }
 
     public void startGame(MouseEvent event) {
 
         if (names.size() > 1 && initial) {      // if it is the beginning of an entire game
-            table = new Table(this);
+            table = new Table(names);
             players = table.getPlayers();
-            numOfFoldedPlayers = table.getNumOfFoldedPlayers();
+            engine = new GameEngine(table);     // also creates the blinds
             initial = false;
 
-            double startingMoney = 1000.0;
-            makeBlinds(startingMoney);      // create the blinds
-
             liveInfoLabel.setText("");
             betErrorLabel.setText("");
             liveTextField.setVisible(false);
@@ -242,29 +190,27 @@ public class Controller {
 
             advanceRound();
 
-        } else if (names.size() > 1 && !initial) {      // if it is the beginning of another round
-            // reset everything back to normal
-            table.resetAllBets();
-            table.resetGame();
+        } else if (names.size() > 1 && !initial && engine.isGameOver()) {     // if only one player has chips left
+            liveInfoLabel.setText("The game is over, there are not enough players with money left to play a round.");
 
+        } else if (names.size() > 1 && !initial) {      // if it is the beginning of another round
+            // the engine resets the table and moves the blinds when it starts the next hand
             liveInfoLabel.setText("");
             betErrorLabel.setText("");
             liveTextField.setVisible(false);
             playGameButton.setVisible(false);
             quitGameButton.setVisible(false);
-            timeInRound = -1;
 
             // reset the cards on the board
             for (int i=0; i<5; i++) {
                 if (i < 2) {
-                    handCards.get(i).setImage(new Image(getClass().getResource("cards/card_back.png").toExternalForm()));
+                    handCards.get(i).setImage(CardImages.getBack());
                 }
-                tableCards.get(i).setImage(new Image(getClass().getResource("cards/card_back.png").toExternalForm()));
+                tableCards.get(i).setImage(CardImages.getBack());
             }
 
             changeFlip();
 
-            blind.advance();
             advanceRound();
         }
 
@@ -274,10 +220,8 @@ public class Controller {
 
         table.resetAllBets();
         table.resetGame();
-        timeInRound = -1;
         initial = true;
         names = new ArrayList<>();
-        roundsPlayedInGame = 0;
 
         setPotLabel("$0");
         setHighBetLabel("$0");
@@ -293,10 +237,10 @@ public class Controller {
 
         for (int i=0; i<5; i++) {
             if (i<2) {
-                handCards.get(i).setImage(new Image(getClass().getResource("cards/card_back.png").toExternalForm()));
-                tableCards.get(i).setImage(new Image(getClass().getResource("cards/card_back.png").toExternalForm()));
+                handCards.get(i).setImage(CardImages.getBack());
+                tableCards.get(i).setImage(CardImages.getBack());
             } else {
-                tableCards.get(i).setImage(new Image(getClass().getResource("cards/card_back.png").toExternalForm()));
+                tableCards.get(i).setImage(CardImages.getBack());
             }
         }
     }
@@ -304,33 +248,32 @@ public class Controller {
 
     public void updateBoard(int winningPosition) {
         ArrayList<Card> cardsOnTable = table.getCardsOnTable();
-        setPotLabel("$" + table.getPot());
-        setHighBetLabel("$" + roundHighBet);
+        setPotLabel("$" + Chips.format(table.getPot()));
+        setHighBetLabel("$" + Chips.format(engine.getRoundHighBet()));
 
         Player currentPlayer = table.getPlayer(tablePosition);
         String name = currentPlayer.getName();
 
-        setPlayerInfo(name, "$" + currentPlayer.getBalance(), currentPlayer.getRecordString());
+        setPlayerInfo(name, "$" + Chips.format(currentPlayer.getBalance()), currentPlayer.getRecordString());
         setTopLabel(name + ", it's your turn. Choose a command!");
 
         // show cards on the table
         for (int i=0; i<cardsOnTable.size(); i++) {
-            String value = cardsOnTable.get(i).getValue();
-            tableCards.get(i).setImage(new Image(getClass().getResource("cards/" + value + ".png").toExternalForm()));
+            tableCards.get(i).setImage(CardImages.get(cardsOnTable.get(i)));
         }
 
-        if (timeInRound != 3) {     // if it's not the last time in the round
+        if (engine.getTimeInRound() != GameEngine.SHOWDOWN) {     // if it's not the last time in the round
             // show the player's cards' backs
-            handCards.get(0).setImage(new Image(getClass().getResource("cards/card_back.png").toExternalForm()));
-            handCards.get(1).setImage(new Image(getClass().getResource("cards/card_back.png").toExternalForm()));
+            handCards.get(0).setImage(CardImages.getBack());
+            handCards.get(1).setImage(CardImages.getBack());
             armFlipButton();
 
         } else {    // if it's the last time in the round
             tablePosition = winningPosition;
             changeFlip();
             handNameLabel.setText(players.get(tablePosition).getName() + ":");
-            setPlayerInfo(players.get(tablePosition).getName(), "$" + players.get(tablePosition)
-                    .getBalance(), players.get(tablePosition).getRecordString());
+            setPlayerInfo(players.get(tablePosition).getName(), "$" + Chips.format(players.get(tablePosition)
+                    .getBalance()), players.get(tablePosition).getRecordString());
             displayCards();
 
             topLabel.setText("To play another round, click the Play button!");
@@ -340,39 +283,18 @@ public class Controller {
 
     }
 
-    public void makeBlinds(double startingMoney) {
-        // Establish Blinds for the Game
-        double bigBlind = (int) startingMoney / 20;
-        if (bigBlind > 50) {
-            bigBlind = 50;
-        } else if (bigBlind < 10) {
-            bigBlind = 10;
-        }
-        double smallBlind = (int) bigBlind / 2;
-
-        blind = new Blind(bigBlind, smallBlind, players.size());
-
-    }
-
+    /**
+     * Shows the blinds that the GameEngine posted at the start of the hand.
+     */
     public void getBlindsForRound() {
-        double big = blind.getBigBlind();
-        double small = blind.getSmallBlind();
+        Blind blind = engine.getBlind();
+        String big = Chips.format(blind.getBigBlind());
+        String small = Chips.format(blind.getSmallBlind());
         int smallPos = blind.getSmallPosition();
         int bigPos = blind.getBigPosition();
 
-        Player bigPlayer = players.get(bigPos);
-        bigPlayer.bet(big);       // bet the BIG BLIND
-        players.get(smallPos).bet(small);   // bet the SMALL BLIND
-
-        highestBettersName = bigPlayer.getName();
-
-        // change the pot and highest bet
-        table.changePot(big);
-        table.changePot(small);
-        currentHighBet = big;
-
         // update the position
-        tablePosition = smallPos;
+        tablePosition = engine.getCurrentPosition();
         liveInfoLabel.setText(players.get(bigPos).getName() + " has bet the Big Blind of $" + big + "\n" +
                 players.get(smallPos).getName() + ", you have bet the Small Blind of $" + small);
 
@@ -384,8 +306,8 @@ public class Controller {
 
         if (flipButton.getText().equals("Flip Cards")) {
             if (flipped) {
-                handCards.get(0).setImage(new Image(getClass().getResource("cards/card_back.png").toExternalForm()));
-                handCards.get(1).setImage(new Image(getClass().getResource("cards/card_back.png").toExternalForm()));
+                handCards.get(0).setImage(CardImages.getBack());
+                handCards.get(1).setImage(CardImages.getBack());
 
             } else {
                 displayCards();
@@ -395,7 +317,7 @@ public class Controller {
         } else {
             tablePosition = (tablePosition + 1) % players.size();
             handNameLabel.setText(players.get(tablePosition).getName() + ":");
-            setPlayerInfo(players.get(tablePosition).getName(), "$" + players.get(tablePosition).getBalance(), players.get(tablePosition).getRecordString());
+            setPlayerInfo(players.get(tablePosition).getName(), "$" + Chips.format(players.get(tablePosition).getBalance()), players.get(tablePosition).getRecordString());
             displayCards();
 
         }
@@ -404,11 +326,10 @@ public class Controller {
 
     public void displayCards() {
         Player player = players.get(tablePosition);
-        String value1 = player.getHand().getCards().get(0).getValue();
-        String value2 = player.getHand().getCards().get(1).getValue();
+        ArrayList<Card> cards = player.getHand().getCards();
 
-        handCards.get(0).setImage(new Image(getClass().getResource("cards/" + value1 + ".png").toExternalForm()));
-        handCards.get(1).setImage(new Image(getClass().getResource("cards/" + value2 + ".png").toExternalForm()));
+        handCards.get(0).setImage(CardImages.get(cards.get(0)));
+        handCards.get(1).setImage(CardImages.get(cards.get(1)));
     }
 
     public void changeFlip() {
@@ -462,27 +383,32 @@ public class Controller {
         statRoundsPlayed.setText(statList[0]);
         statHighestPot.setText("$" + statList[1]);
         statBestRecord.setText(statList[2]);
+        statsLoaded = true;
 
     }
 
     public void updateCurrentStats(boolean endOfRound) {
+        if (!statsLoaded) {
+            return;
+        }
         boolean roundsChanged = false;
         boolean potChanged = false;
         boolean betChanged = false;
 
         // first check the number of current number of rounds played
         int previousRoundsPlayed = Integer.parseInt(statRoundsPlayed.getText());
+        int roundsPlayedInGame = engine.getRoundsPlayed();
         if (roundsPlayedInGame > previousRoundsPlayed) {
             statRoundsPlayed.setText(String.valueOf(roundsPlayedInGame));
             roundsChanged = true;
         }
 
         // second check the value of the current pot
-        double highestPotInGame = table.getPot();
+        long highestPotInGame = table.getPot();
         String previousPotString = statHighestPot.getText();
-        double previousPotHigh = Double.parseDouble(previousPotString.substring(1,previousPotString.length()));
+        long previousPotHigh = Chips.parse(previousPotString.substring(1,previousPotString.length()));
         if (highestPotInGame > previousPotHigh) {
-            statHighestPot.setText("$" + String.valueOf(highestPotInGame));
+            statHighestPot.setText("$" + Chips.format(highestPotInGame));
             potChanged = true;
         }
 
@@ -516,26 +442,26 @@ public class Controller {
             }
         }
 
-        if (roundsChanged || potChanged || betChanged) {     // if there have been any changes to the records, write them to the file
-            writeStatsToFile();
+        if (roundsChanged || potChanged || betChanged) {     // if there have been any changes to the records, save them
+            saveStats();
         }
 
     }
 
-    public void writeStatsToFile() {
-        String stats = statRoundsPlayed.getText()+"\n" + statHighestPot.getText().split("\\$")[1]+"\n" + statBestRecord.getText();
-        try {
-            // create the file printer for the controller to use later
-            File file = new File("poker_stats.txt");
-            FileOutputStream statWriter = new FileOutputStream(file);
-
-            statWriter.write(stats.getBytes());
-
-        } catch (IOException e) {
-            System.err.println("Could not write to stats file...");
+    /**
+     * Hands the stats that are shown to the StatsStore, which writes them in the background.
+     */
+    public void saveStats() {
+        if (statsStore != null) {
+            statsStore.save(new StatsStore.Stats(statRoundsPlayed.getText(),
+                    statHighestPot.getText().split("\\$")[1], statBestRecord.getText()));
         }
     }
 
+    public void setStatsStore(StatsStore statsStore) {
+        this.statsStore = statsStore;
+    }
+
     public void setPlayerInfo(String player, String wallet, String record) {
         playerNameLabel.setText(player);
         playerWalletLabel.setText(wallet);
@@ -562,7 +488,8 @@ public class Controller {
         statRoundsPlayed.setText("" + 0);
         statHighestPot.setText("$0.0");
         statBestRecord.setText("0-0");
-        writeStatsToFile();
+        statsLoaded = true;
+        saveStats();
     }
 
 }
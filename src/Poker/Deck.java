@@ -1,7 +1,8 @@
 package Poker;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
 
 /**
  * Created by ty on 10/6/15.
@@ -9,11 +10,21 @@ import java.util.Random;
  *
  * A class that creates a deck which is used by the table during a game of poker.
  * The deck is given a maximum size which cannot be exceeded.
+ *
+ * The cards are kept in a fixed array with a pointer to the top of the deck.
+ * Drawing a card only moves the pointer, so drawn cards stay where they were and
+ * reset() can put every one of them back at once without collecting them.
+ *
+ * Each deck shuffles with its own ShuffleSource (the calling thread's random by default),
+ * so a deck seeded with ShuffleSource.seeded() always deals the same cards.
  */
 public class Deck {
 
-    protected int size;
-    protected ArrayList<Card> cards;
+    protected int size;         // the maximum size of the deck
+    protected Card[] cards;     // fixed storage, the cards from top to count are in the deck
+    protected int top = 0;      // the position of the next card to be drawn
+    protected int count = 0;    // the number of positions in use (drawn or not)
+    private ShuffleSource shuffleSource = ShuffleSource.threadLocal();
 
     /**
      * This construct creates a Deck with a size that is divisible
@@ -23,39 +34,104 @@ public class Deck {
      */
     public Deck(int deckSize) {
         this.size = deckSize - (deckSize%4);
-        this.cards = new ArrayList<>();
+        this.cards = new Card[size];
 
-        String[] suits = {"S", "D", "H", "C"};
         for (int i = 0; i < deckSize/4; i++) {  // adds specified number of Cards to the Deck
             for (int j=0; j<4; j++) {
-                Card newCard = new Card((i % 13) + 2, suits[j]);    // add 4 Cards of Number (i%13 + 2) and each Suit
-                cards.add(newCard);
+                Card newCard = Card.of((i % 13) + 2, Card.SUITS[j]);     // add 4 Cards of Number (i%13 + 2) and each Suit
+                cards[count++] = newCard;
             }
         }
     }
 
     /**
      * Shuffles all of the cards that are currently in the deck.
-     *
+     * Uses an in-place Fisher-Yates shuffle, so every order is equally likely.
      */
     public void shuffle() {
-        Random random = new Random();
+        PokerMetrics.shuffled();
+        for (int i=count-1; i>top; i--) {
+            int randomPlace = top + shuffleSource.nextInt(i - top + 1);    // Choose a random point between the top and what you haven't looked at
+            Card swapped = cards[i];        // Swap that random Card with the last Card not looked at
+            cards[i] = cards[randomPlace];
+            cards[randomPlace] = swapped;
+        }
+    }
+
+    /**
+     * Puts the given cards on the top of the deck in the given order, so that they are
+     * the next cards drawn (ex: to deal a recorded hand again). The rest of the deck stays as it was.
+     *
+     * @param order - the indexes of the cards to put on top, first one drawn first
+     */
+    public void stack(int[] order) {
+        stack(order, order.length);
+    }
 
-        for (int i=0; i<cards.size(); i++) {
-            int randomPlace = random.nextInt(cards.size() - i); // Choose a random point between 0 and what you haven't looked at
-            Card removedCard = cards.remove(randomPlace);   // Remove that random Card
-            cards.add(removedCard);     // Place the removed Card at the end of the list
+    /**
+     * Puts the first cards of the given order on the top of the deck.
+     *
+     * @param order - the indexes of the cards to put on top, first one drawn first
+     * @param length - how many of the cards to use
+     */
+    public void stack(int[] order, int length) {
+        for (int i=0; i<length; i++) {
+            int position = top + i;
+            int found = -1;
+            for (int j=position; j<count; j++) {
+                if (cards[j].getIndex() == order[i]) {
+                    found = j;
+                    break;
+                }
+            }
+            if (found < 0) {
+                throw new IllegalArgumentException("Card " + order[i] + " is not in the deck (or is used twice)");
+            }
+            Card swapped = cards[position];
+            cards[position] = cards[found];
+            cards[found] = swapped;
         }
     }
 
+    /**
+     * Sets the source of randomness used by shuffle().
+     *
+     * @param source - the source the deck shuffles with from now on
+     */
+    public void setShuffleSource(ShuffleSource source) {
+        this.shuffleSource = source;
+    }
+
+    public ShuffleSource getShuffleSource() {
+        return shuffleSource;
+    }
+
     /**
      * Adds a specific card object to the deck.
+     * A card that was drawn from this deck goes back to the top of it,
+     * any other card is placed on the bottom.
      *
      * @param addedCard - the card to be added
      */
     public void addCard(Card addedCard) {
-        if ((this.getSize() < size) && (!cards.contains(addedCard))) {
-            cards.add(addedCard);
+        if ((this.getSize() < size) && (!contains(addedCard))) {
+
+            for (int i=0; i<top; i++) {
+                if (cards[i].equals(addedCard)) {   // if the card was drawn from this deck, un-draw it
+                    cards[i] = cards[top - 1];
+                    cards[top - 1] = addedCard;
+                    top--;
+                    return;
+                }
+            }
+
+            if (count == cards.length) {    // make room by dropping the drawn cards
+                System.arraycopy(cards, top, cards, 0, count - top);
+                Arrays.fill(cards, count - top, count, null);
+                count -= top;
+                top = 0;
+            }
+            cards[count++] = addedCard;
         }
 
         assert (this.getSize() <= size);    // make sure that the size is less than or equal to the maximum size of the deck
@@ -67,21 +143,61 @@ public class Deck {
      * @return - the card on the top of the deck
      */
     public Card drawCard() {
-        if (this.getSize() != 0) {
-            return cards.remove(0);
+        if (top < count) {
+            return cards[top++];
         } else {
             throw new IndexOutOfBoundsException(    // throws an out of bounds exception if there are no cards in the deck
                     "There are no more cards in the deck!");
         }
     }
 
+    /**
+     * Puts every card that has been drawn back into the deck.
+     * The cards are not collected from anywhere, so the caller must make sure they are no longer in use.
+     */
+    public void reset() {
+        PokerMetrics.deckReset();
+        top = 0;
+    }
+
+    /**
+     * Removes every card from the deck, drawn or not.
+     */
+    public void clear() {
+        Arrays.fill(cards, 0, count, null);
+        top = 0;
+        count = 0;
+    }
+
+    /**
+     * Checks whether a card is currently in the deck.
+     *
+     * @param card - the card to look for
+     * @return - a boolean indicating if the card is in the deck
+     */
+    public boolean contains(Card card) {
+        for (int i=top; i<count; i++) {
+            if (cards[i].equals(card)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Gets the cards in the deck as an ArrayList of card objects.
+     * The list is a copy, changing it does not change the deck.
      *
      * @return - an ArrayList of cards contained within the deck
      */
     public ArrayList<Card> getCards() {
-        return cards;
+        ArrayList<Card> list = new ArrayList<>(getSize());
+
+        for (int i=top; i<count; i++) {
+            list.add(cards[i]);
+        }
+
+        return list;
     }
 
     /**
@@ -92,21 +208,84 @@ public class Deck {
     public ArrayList<String> getCardValues() {
         ArrayList<String> cardValues = new ArrayList<>();
 
-        for (Card card : cards) {
-            String value = card.getValue();
+        for (int i=top; i<count; i++) {
+            String value = cards[i].getValue();
             cardValues.add(value);
         }
 
         return cardValues;
     }
 
+    /**
+     * Gets the cards in the deck as an array of card indexes (0 - 51).
+     *
+     * @return - an array of the indexes of the cards in the deck
+     */
+    public int[] getCardIndexes() {
+        int[] indexes = new int[getSize()];
+
+        for (int i=0; i<indexes.length; i++) {
+            indexes[i] = cards[top + i].getIndex();
+        }
+
+        return indexes;
+    }
+
+    /**
+     * Gets the cards in the deck as a 64-bit mask with one bit set per card.
+     *
+     * @return - the mask of the cards in the deck
+     */
+    public long getCardMask() {
+        long mask = 0L;
+
+        for (int i=top; i<count; i++) {
+            mask |= cards[i].getMask();
+        }
+
+        return mask;
+    }
+
+    /**
+     * Writes the order of every position of the deck (drawn or not) and where the top is,
+     * for a TableCheckpoint.
+     *
+     * @param buffer - the buffer to write to
+     */
+    void writeCheckpoint(ByteBuffer buffer) {
+        buffer.put((byte) count);
+        buffer.put((byte) top);
+        for (int i=0; i<count; i++) {
+            buffer.put((byte) cards[i].getIndex());
+        }
+    }
+
+    /**
+     * Puts the deck back the way writeCheckpoint() wrote it.
+     *
+     * @param buffer - the buffer to read from
+     */
+    void readCheckpoint(ByteBuffer buffer) {
+        int newCount = buffer.get() & 0xFF;
+        int newTop = buffer.get() & 0xFF;
+        if (newCount > cards.length || newTop > newCount) {
+            throw new IllegalArgumentException("Corrupt checkpoint: a deck of " + newCount + " cards");
+        }
+        Arrays.fill(cards, null);
+        for (int i=0; i<newCount; i++) {
+            cards[i] = Card.of(buffer.get() & 0xFF);
+        }
+        count = newCount;
+        top = newTop;
+    }
+
     /**
      * Gets the current size of the deck.
      *
      * @return - the deck's current size
      */
     public int getSize() {
-        return cards.size();
+        return count - top;
     }
 
 }
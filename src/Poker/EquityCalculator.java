@@ -0,0 +1,416 @@
+package Poker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Calculates how often each player's hole cards win, tie or lose against the others
+ * by dealing random runouts of the board.
+ *
+ * The hole cards, board and dead cards are given as card indexes (see Card.getIndex()).
+ * The sampling is split into batches that run on a ForkJoinPool. Each worker keeps its
+ * own copy of the remaining deck and its own ShuffleSource split from a master source,
+ * so workers never share any state while they deal. Nothing here touches a Player,
+ * so any number of calculations can run at once.
+ *
+ * Next to sampling, enumerate() walks every remaining board for exact counts
+ * (1,712,304 boards preflop heads-up, far fewer on the flop or turn).
+ *
+ * @author Tyler Newman
+ */
+public class EquityCalculator {
+
+    private static final int SAMPLES_PER_TASK = 16384;    // boards dealt by one worker between stopping checks
+
+    private final ForkJoinPool pool;
+    private final ShuffleSource master;
+
+    /**
+     * Creates an EquityCalculator that runs on the common ForkJoinPool with an unseeded master stream.
+     */
+    public EquityCalculator() {
+        this(ForkJoinPool.commonPool(), ShuffleSource.splittable());
+    }
+
+    /**
+     * Creates an EquityCalculator that runs on the given pool and splits every worker's
+     * random stream from a master seed (so the same seed always samples the same boards).
+     *
+     * @param pool - the pool the workers run on
+     * @param seed - the master seed
+     */
+    public EquityCalculator(ForkJoinPool pool, long seed) {
+        this(pool, ShuffleSource.seeded(seed));
+    }
+
+    /**
+     * Creates an EquityCalculator that runs on the given pool and splits every worker's
+     * random stream from the given master source.
+     *
+     * @param pool - the pool the workers run on
+     * @param master - the source every worker's stream is split from
+     */
+    public EquityCalculator(ForkJoinPool pool, ShuffleSource master) {
+        this.pool = pool;
+        this.master = master;
+    }
+
+    /**
+     * Samples a fixed number of random boards.
+     *
+     * @param holeCards - two card indexes for each player
+     * @param board - the cards already on the table (0 to 5, may be empty)
+     * @param deadCards - cards that are out of the deck and cannot be dealt (may be empty)
+     * @param samples - the number of boards to sample
+     * @return - the win/tie/loss result for each player
+     */
+    public EquityResult simulate(int[][] holeCards, int[] board, int[] deadCards, long samples) {
+        return simulate(holeCards, board, deadCards, 0.0, Long.MAX_VALUE, samples);
+    }
+
+    /**
+     * Samples random boards until every player's equity is within the error bound,
+     * or until the time budget runs out, whichever comes first.
+     *
+     * @param holeCards - two card indexes for each player
+     * @param board - the cards already on the table (0 to 5, may be empty)
+     * @param deadCards - cards that are out of the deck and cannot be dealt (may be empty)
+     * @param maxError - the largest standard error allowed on any equity (ex: 0.001 for 0.1%)
+     * @param timeBudgetMillis - the most time to spend sampling (Long.MAX_VALUE for no limit)
+     * @return - the win/tie/loss result for each player
+     * @throws IllegalArgumentException - if maxError is not above 0 and there is no time limit,
+     *                                    since the sampling would never stop
+     */
+    public EquityResult simulate(int[][] holeCards, int[] board, int[] deadCards,
+                                 double maxError, long timeBudgetMillis) {
+        if (!(maxError > 0) && timeBudgetMillis == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("maxError must be above 0 when there is no time budget");
+        }
+        return simulate(holeCards, board, deadCards, maxError, timeBudgetMillis, Long.MAX_VALUE);
+    }
+
+    private EquityResult simulate(int[][] holeCards, int[] board, int[] deadCards,
+                                  double maxError, long timeBudgetMillis, long maxSamples) {
+        Matchup matchup = new Matchup(holeCards, board, deadCards);
+
+        if (matchup.needed == 0) {      // the board is complete, there is nothing to sample
+            Tally tally = new Tally(matchup.players());
+            tally.record(matchup, matchup.boardMask);
+            return tally.toResult(true);
+        }
+
+        long deadline = deadline(timeBudgetMillis);
+        int workers = pool.getParallelism();
+        Tally total = new Tally(matchup.players());
+
+        while (total.samples < maxSamples) {
+            List<Callable<Tally>> tasks = new ArrayList<>();
+            long remaining = maxSamples - total.samples;
+
+            for (int i=0; i<workers && remaining > 0; i++) {
+                int samples = (int) Math.min(SAMPLES_PER_TASK, remaining);
+                remaining -= samples;
+                tasks.add(new Sampler(matchup, nextStream(), samples));
+            }
+
+            for (Future<Tally> result : pool.invokeAll(tasks)) {
+                total.add(join(result));
+            }
+
+            EquityResult sofar = total.toResult(false);
+            if ((maxError > 0 && sofar.getStandardError() <= maxError) || System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        return total.toResult(false);
+    }
+
+    /**
+     * Gets the System.nanoTime() at which a time budget runs out. Budgets too large
+     * to fit in nanoseconds are treated as no limit instead of wrapping into the past.
+     *
+     * @param timeBudgetMillis - the most time to spend
+     * @return - the deadline, or Long.MAX_VALUE if there is none
+     */
+    private static long deadline(long timeBudgetMillis) {
+        if (timeBudgetMillis >= Long.MAX_VALUE / 1000000L) {
+            return Long.MAX_VALUE;
+        }
+        long now = System.nanoTime();
+        long budget = Math.max(0, timeBudgetMillis) * 1000000L;
+        return now > Long.MAX_VALUE - budget ? Long.MAX_VALUE : now + budget;
+    }
+
+    /**
+     * Walks every board that can still be dealt and counts the exact wins and ties.
+     * The boards are split across the pool by their first card, so each worker
+     * enumerates every board that starts with the cards it was given.
+     *
+     * @param holeCards - two card indexes for each player
+     * @param board - the cards already on the table (0 to 5, may be empty)
+     * @param deadCards - cards that are out of the deck and cannot be dealt (may be empty)
+     * @return - the exact win/tie/loss result for each player
+     */
+    public EquityResult enumerate(int[][] holeCards, int[] board, int[] deadCards) {
+        Matchup matchup = new Matchup(holeCards, board, deadCards);
+        Tally total = new Tally(matchup.players());
+
+        if (matchup.needed == 0) {      // the board is complete, there is only one board to count
+            total.record(matchup, matchup.boardMask);
+            return total.toResult(true);
+        }
+
+        List<Callable<Tally>> tasks = new ArrayList<>();
+        for (int first=0; first<=matchup.remaining.length - matchup.needed; first++) {
+            tasks.add(new Enumerator(matchup, first));
+        }
+
+        for (Future<Tally> result : pool.invokeAll(tasks)) {
+            total.add(join(result));
+        }
+
+        return total.toResult(true);
+    }
+
+    /**
+     * Splits a new independent random stream off of the master stream for one worker.
+     * The master is shared by every calculation on this calculator, so splitting is synchronized.
+     */
+    private synchronized ShuffleSource nextStream() {
+        return master.split();
+    }
+
+    static Tally join(Future<Tally> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Equity calculation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Equity calculation failed", e.getCause());
+        }
+    }
+
+    /**
+     * One worker's share of the sampling. Deals from its own copy of the remaining deck
+     * with a partial Fisher-Yates shuffle (only the cards that are needed get shuffled).
+     */
+    private static class Sampler implements Callable<Tally> {
+
+        private final Matchup matchup;
+        private final ShuffleSource random;
+        private final int samples;
+
+        Sampler(Matchup matchup, ShuffleSource random, int samples) {
+            this.matchup = matchup;
+            this.random = random;
+            this.samples = samples;
+        }
+
+        @Override
+        public Tally call() {
+            int[] deck = matchup.remaining.clone();     // this worker's own deck state
+            int needed = matchup.needed;
+            Tally tally = new Tally(matchup.players());
+
+            for (int s=0; s<samples; s++) {
+                long boardMask = matchup.boardMask;
+
+                for (int i=0; i<needed; i++) {
+                    int j = i + random.nextInt(deck.length - i);
+                    int card = deck[j];
+                    deck[j] = deck[i];
+                    deck[i] = card;
+                    boardMask |= 1L << card;
+                }
+
+                tally.record(matchup, boardMask);
+            }
+
+            return tally;
+        }
+    }
+
+    /**
+     * One worker's share of the enumeration: every board whose lowest remaining card is the given one.
+     */
+    private static class Enumerator implements Callable<Tally> {
+
+        private final Matchup matchup;
+        private final int first;
+
+        Enumerator(Matchup matchup, int first) {
+            this.matchup = matchup;
+            this.first = first;
+        }
+
+        @Override
+        public Tally call() {
+            int[] remaining = matchup.remaining;
+            int n = remaining.length;
+            int k = matchup.needed - 1;     // the cards to choose after the first one
+            long base = matchup.boardMask | (1L << remaining[first]);
+            Tally tally = new Tally(matchup.players());
+
+            // positions of the chosen cards in remaining, always in increasing order
+            int[] chosen = new int[k];
+            for (int j=0; j<k; j++) {
+                chosen[j] = first + 1 + j;
+            }
+
+            while (true) {
+                long boardMask = base;
+                for (int j=0; j<k; j++) {
+                    boardMask |= 1L << remaining[chosen[j]];
+                }
+                tally.record(matchup, boardMask);
+
+                // move to the next combination (find the rightmost position that can still move up)
+                int j = k - 1;
+                while (j >= 0 && chosen[j] == n - k + j) {
+                    j--;
+                }
+                if (j < 0) {
+                    break;
+                }
+                chosen[j]++;
+                for (int l=j+1; l<k; l++) {
+                    chosen[l] = chosen[l - 1] + 1;
+                }
+            }
+
+            return tally;
+        }
+    }
+
+    /**
+     * The validated cards of one calculation, shared read-only by all of its workers.
+     */
+    static class Matchup {
+
+        final long[] holeMasks;     // each player's two hole cards as a mask
+        final long boardMask;       // the cards already on the table
+        final int needed;           // the number of board cards still to come
+        final int[] remaining;      // every card that can still be dealt
+
+        Matchup(int[][] holeCards, int[] board, int[] deadCards) {
+            if (holeCards.length < 2) {
+                throw new IllegalArgumentException("At least two players are needed");
+            }
+            if (board.length > 5) {
+                throw new IllegalArgumentException("There can be at most 5 cards on the table");
+            }
+
+            long used = 0L;
+            holeMasks = new long[holeCards.length];
+            for (int i=0; i<holeCards.length; i++) {
+                if (holeCards[i].length != 2) {
+                    throw new IllegalArgumentException("Player " + i + " must have exactly 2 hole cards");
+                }
+                holeMasks[i] = Card.maskOf(holeCards[i]);
+                used = take(used, holeCards[i]);
+            }
+
+            boardMask = Card.maskOf(board);
+            used = take(used, board);
+            used = take(used, deadCards);
+
+            needed = 5 - board.length;
+            remaining = new int[Card.NUMBER_OF_CARDS - Long.bitCount(used)];
+            int next = 0;
+            for (int card=0; card<Card.NUMBER_OF_CARDS; card++) {
+                if ((used & (1L << card)) == 0) {
+                    remaining[next++] = card;
+                }
+            }
+            if (remaining.length < needed) {
+                throw new IllegalArgumentException("There are not enough cards left to finish the board");
+            }
+        }
+
+        int players() {
+            return holeMasks.length;
+        }
+
+        private static long take(long used, int[] cards) {
+            for (int card : cards) {
+                if (card < 0 || card >= Card.NUMBER_OF_CARDS) {
+                    throw new IllegalArgumentException("Not a valid card index: " + card);
+                }
+                if ((used & (1L << card)) != 0) {
+                    throw new IllegalArgumentException("Card " + card + " is used more than once");
+                }
+                used |= 1L << card;
+            }
+            return used;
+        }
+    }
+
+    /**
+     * The running win/tie counts of one worker (or of a whole calculation once merged).
+     */
+    static class Tally {
+
+        long samples;
+        final long[] wins;
+        final long[] ties;
+        final double[] shares;
+        private final int[] strengths;
+
+        Tally(int players) {
+            wins = new long[players];
+            ties = new long[players];
+            shares = new double[players];
+            strengths = new int[players];
+        }
+
+        /**
+         * Evaluates every player against one complete board and counts the winner(s).
+         */
+        void record(Matchup matchup, long boardMask) {
+            int best = HandEvaluator.NO_HAND;
+            int numOfWinners = 0;
+
+            for (int i=0; i<strengths.length; i++) {
+                int strength = HandEvaluator.evaluate(matchup.holeMasks[i] | boardMask);
+                strengths[i] = strength;
+                if (strength > best) {
+                    best = strength;
+                    numOfWinners = 1;
+                } else if (strength == best) {
+                    numOfWinners++;
+                }
+            }
+
+            for (int i=0; i<strengths.length; i++) {
+                if (strengths[i] == best) {
+                    if (numOfWinners == 1) {
+                        wins[i]++;
+                    } else {
+                        ties[i]++;
+                    }
+                    shares[i] += 1.0 / numOfWinners;
+                }
+            }
+            samples++;
+        }
+
+        void add(Tally other) {
+            samples += other.samples;
+            for (int i=0; i<wins.length; i++) {
+                wins[i] += other.wins[i];
+                ties[i] += other.ties[i];
+                shares[i] += other.shares[i];
+            }
+        }
+
+        EquityResult toResult(boolean exact) {
+            return new EquityResult(samples, wins, ties, shares, exact);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package Poker;
+
+/**
+ * The outcome of an equity calculation for a number of players.
+ * Keeps the raw win and tie counts for each player along with the share of the pot
+ * they would have taken, and turns them into percentages on request.
+ *
+ * Is created by the EquityCalculator and is immutable once it has been handed out.
+ *
+ * @author Tyler Newman
+ */
+public class EquityResult {
+
+    private final long samples;
+    private final long[] wins;
+    private final long[] ties;
+    private final double[] shares;
+    private final boolean exact;
+
+    EquityResult(long samples, long[] wins, long[] ties, double[] shares, boolean exact) {
+        this.samples = samples;
+        this.wins = wins.clone();
+        this.ties = ties.clone();
+        this.shares = shares.clone();
+        this.exact = exact;
+    }
+
+    /**
+     * Gets the number of boards that were dealt (sampled or enumerated).
+     *
+     * @return - the number of boards behind the result
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Gets whether every remaining board was enumerated (true) or the result was sampled (false).
+     *
+     * @return - a boolean indicating if the result is exact
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    public int getNumOfPlayers() {
+        return wins.length;
+    }
+
+    /**
+     * Gets the number of boards that the player won outright.
+     */
+    public long getWins(int player) {
+        return wins[player];
+    }
+
+    /**
+     * Gets the number of boards that the player tied for the best hand.
+     */
+    public long getTies(int player) {
+        return ties[player];
+    }
+
+    /**
+     * Gets the number of boards that the player lost.
+     */
+    public long getLosses(int player) {
+        return samples - wins[player] - ties[player];
+    }
+
+    public double getWinPercent(int player) {
+        return percent(wins[player]);
+    }
+
+    public double getTiePercent(int player) {
+        return percent(ties[player]);
+    }
+
+    public double getLossPercent(int player) {
+        return percent(getLosses(player));
+    }
+
+    /**
+     * Gets the share of the pot the player can expect, counting a tie as an even split.
+     *
+     * @param player - the position of the player
+     * @return - the player's equity as a percentage
+     */
+    public double getEquityPercent(int player) {
+        return samples == 0 ? 0.0 : 100.0 * shares[player] / samples;
+    }
+
+    /**
+     * Gets the largest standard error (as a fraction, not a percentage) of any player's equity.
+     * Is 0 for an exact result.
+     *
+     * @return - the largest standard error among the players
+     */
+    public double getStandardError() {
+        if (exact || samples == 0) {
+            return 0.0;
+        }
+
+        double largest = 0.0;
+        for (double share : shares) {
+            double equity = share / samples;
+            largest = Math.max(largest, Math.sqrt(equity * (1 - equity) / samples));
+        }
+        return largest;
+    }
+
+    private double percent(long count) {
+        return samples == 0 ? 0.0 : 100.0 * count / samples;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i=0; i<wins.length; i++) {
+            text.append(String.format("Player %d: %.2f%% win, %.2f%% tie, %.2f%% loss (equity %.2f%%)%n",
+                    i, getWinPercent(i), getTiePercent(i), getLossPercent(i), getEquityPercent(i)));
+        }
+        text.append(samples).append(exact ? " boards enumerated" : " boards sampled");
+        return text.toString();
+    }
+}
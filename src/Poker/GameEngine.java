@@ -0,0 +1,548 @@
+package Poker;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Runs the betting for hands of poker at a Table without any UI.
+ * Posts the blinds, takes Raise/Call/Fold actions from the player whose turn it is,
+ * deals each street once a betting round is finished, and pays out the pot at the showdown.
+ *
+ * The Controller drives a GameEngine from its buttons and only reads its state to update
+ * the labels, but an engine can just as well be driven directly (bots, load tests), since
+ * nothing in it touches JavaFX.
+ *
+ * The time in the round follows the deal:
+ *    -1)    pre-flop (after the blinds)
+ *     0)    the flop
+ *     1)    the turn
+ *     2)    the river
+ *     3)    the showdown (the hand is over)
+ */
+public class GameEngine {
+
+    public static final int PRE_FLOP = -1;
+    public static final int SHOWDOWN = 3;
+
+    private final Table table;
+    private final Blind blind;
+    private final ArrayList<Player> players;
+
+    private int tablePosition;                  // the position of the player whose turn it is
+    private int highestBetterPosition = -1;     // the player that made the highest bet (-1 if they folded)
+    private long currentHighBet = 0;            // the highest total bet of the hand
+    private long roundHighBet = 0;              // how much the bet has gone up during this betting round
+    private int timeInRound = PRE_FLOP;
+    private boolean handOver = true;
+    private int[] winners = new int[0];
+    private int roundsPlayed = 0;
+    private boolean dealt = false;              // whether a hand has been dealt at this table yet
+    private HandRecorder recorder = null;       // records every hand if set
+    private TableBroadcast broadcast = null;    // sends every action to spectators if set
+    private long turnStarted = 0;               // when the current turn started, for PokerMetrics (0 if not timed)
+
+    /**
+     * Creates a GameEngine for a table with blinds based on the table's starting money.
+     *
+     * @param table - the table the hands are played at
+     */
+    public GameEngine(Table table) {
+        this(table, Blind.fromStartingMoney(Table.STARTING_MONEY, table.getPlayers().size()));
+    }
+
+    public GameEngine(Table table, Blind blind) {
+        this.table = table;
+        this.blind = blind;
+        this.players = table.getPlayers();
+    }
+
+    /**
+     * Starts a new hand: shuffles the deck, deals two cards to each player and posts the blinds.
+     * If a hand has already been played, the table is reset first. Players without any chips
+     * left sit the hand out (they are folded as soon as the cards are dealt).
+     */
+    public void startHand() {
+        startHand(null, 0);
+    }
+
+    /**
+     * Starts a new hand dealt from a deck with the given cards on top instead of a shuffled one
+     * (see Table.stackDeck()). Is used to play a recorded hand again.
+     *
+     * @param deckOrder - the indexes of the cards in the order they are dealt, or null to shuffle
+     * @param length - how many of the cards to use
+     */
+    public void startHand(int[] deckOrder, int length) {
+        if (isGameOver()) {
+            throw new IllegalStateException("At least two players need chips to play a hand");
+        }
+        HandEvents.HandStart event = new HandEvents.HandStart();
+        event.begin();
+        if (dealt) {
+            table.resetAllBets();
+            table.resetGame();
+        }
+        dealt = true;
+
+        timeInRound = PRE_FLOP;
+        handOver = false;
+        winners = new int[0];
+
+        table.shuffleDeck();
+        if (deckOrder != null) {
+            table.stackDeck(deckOrder, length);
+        }
+        table.dealCardsToPlayers();
+        for (int i=0; i<players.size(); i++) {
+            if (players.get(i).getBalance() == 0) {
+                table.foldPlayer(i);
+            }
+        }
+        if (recorder != null) {
+            recorder.beginHand(players);
+        }
+        if (event.shouldCommit()) {
+            event.set(table);
+            event.handNumber = roundsPlayed + 1;
+            event.commit();
+        }
+        postBlinds();
+        if (broadcast != null) {
+            broadcast.handStarted(this);
+        }
+        turnStarted = PokerMetrics.startTimer();
+    }
+
+    /**
+     * Has every player put in the ante (if there is one) and the blind positions bet the big
+     * and small blinds. Blinds that would fall on a seat without money move on to the next
+     * seats that have some. The small blind is the first to act (or the next player who can,
+     * if they are all-in).
+     */
+    private void postBlinds() {
+        HandEvents.BlindsPosted event = new HandEvents.BlindsPosted();
+        event.begin();
+        long big = blind.getBigBlind();
+        long small = blind.getSmallBlind();
+        long ante = blind.getAnte();
+        int bigPos = nextSeatWithMoney(blind.getBigPosition());
+        int smallPos = nextSeatWithMoney((bigPos + 1) % players.size());
+        if (bigPos != blind.getBigPosition() || smallPos != blind.getSmallPosition()) {
+            blind.setPositions(bigPos, smallPos);
+        }
+
+        if (ante > 0) {
+            for (Player player : players) {
+                table.changePot(player.postAnte(ante));
+            }
+        }
+
+        // bet the BIG and SMALL BLIND (a player short of the blind only puts in what they have)
+        table.changePot(players.get(bigPos).bet(big));
+        table.changePot(players.get(smallPos).bet(small));
+        if (recorder != null) {
+            recorder.blind(bigPos, big);
+            recorder.blind(smallPos, small);
+            if (ante > 0) {
+                recorder.blind(bigPos, ante);   // the ante is recorded as a third blind
+            }
+        }
+
+        // change the highest bet
+        currentHighBet = big;
+        roundHighBet = big;
+        highestBetterPosition = players.get(bigPos).isFolded() ? -1 : bigPos;
+        if (event.shouldCommit()) {
+            event.set(table);
+            event.bigBlind = big;
+            event.smallBlind = small;
+            event.ante = ante;
+            event.commit();
+        }
+
+        tablePosition = smallPos;
+        if (!canAct(tablePosition)) {
+            nextTurn();
+        }
+    }
+
+    /**
+     * The current player calls the highest bet and raises it by the given amount.
+     * Nothing happens (and it is still their turn) if they cannot afford it.
+     *
+     * @param bet - how much to raise the highest bet by
+     * @return - a boolean indicating if the raise was made
+     */
+    public boolean raise(long bet) {
+        checkInHand();
+        Player currentPlayer = players.get(tablePosition);
+
+        long toCall = currentHighBet - currentPlayer.getCurrentBet();
+        if (bet < 0 || bet > currentPlayer.getBalance() - toCall) {     // compared this way so a huge bet cannot overflow
+            return false;
+        }
+        long total = toCall + bet;
+
+        // the raise is only counted and recorded once it is known to be made
+        turnStarted = PokerMetrics.actionTaken(turnStarted);
+        if (recorder != null) {
+            recorder.action(tablePosition, Action.raise(bet));
+        }
+        table.changePot(currentPlayer.bet(total));
+        currentHighBet += bet;
+        roundHighBet += bet;
+        highestBetterPosition = tablePosition;
+
+        int seat = tablePosition;
+        nextTurn();
+        if (broadcast != null) {
+            broadcast.acted(this, seat, Action.raise(bet));
+        }
+        return true;
+    }
+
+    /**
+     * The current player matches the highest bet (or checks if they already have).
+     * A player without enough chips to call goes all-in.
+     */
+    public void call() {
+        checkInHand();
+        Player currentPlayer = players.get(tablePosition);
+        turnStarted = PokerMetrics.actionTaken(turnStarted);
+        if (recorder != null) {
+            recorder.action(tablePosition, Action.call());
+        }
+
+        long total = currentHighBet - currentPlayer.getCurrentBet();
+        if (total > 0) {    // if it is not the highest better (bet() takes everything they have if it is not enough)
+            table.changePot(currentPlayer.bet(total));
+        }
+
+        if (highestBetterPosition == -1) {
+            // if the highest better folded, this player is now the highest better
+            highestBetterPosition = tablePosition;
+        }
+
+        int seat = tablePosition;
+        nextTurn();
+        if (broadcast != null) {
+            broadcast.acted(this, seat, Action.call());
+        }
+    }
+
+    /**
+     * The current player folds and is out of the hand.
+     */
+    public void fold() {
+        checkInHand();
+        turnStarted = PokerMetrics.actionTaken(turnStarted);
+        if (recorder != null) {
+            recorder.action(tablePosition, Action.fold());
+        }
+
+        table.foldPlayer(tablePosition);
+        if (tablePosition == highestBetterPosition) {
+            // make the highest better nobody
+            highestBetterPosition = -1;
+        }
+
+        int seat = tablePosition;
+        nextTurn();
+        if (broadcast != null) {
+            broadcast.acted(this, seat, Action.fold());
+        }
+    }
+
+    /**
+     * The current player takes the given action.
+     *
+     * @param action - the Raise, Call or Fold to take
+     * @return - a boolean indicating if the action was taken (a raise the player cannot afford is not)
+     */
+    public boolean apply(Action action) {
+        switch (action.getType()) {
+            case RAISE:
+                return raise(action.getAmount());
+            case CALL:
+                call();
+                return true;
+            default:
+                fold();
+                return true;
+        }
+    }
+
+    /**
+     * Gets what the player whose turn it is can see of the hand.
+     *
+     * @param tableId - the id of the table to put in the view
+     * @return - the current player's view of the game
+     */
+    public GameView getView(int tableId) {
+        checkInHand();
+        Player currentPlayer = players.get(tablePosition);
+
+        long boardMask = 0L;
+        for (Card card : table.getCardsOnTable()) {
+            boardMask |= card.getMask();
+        }
+
+        return new GameView(tableId, tablePosition, players.size(), getNumOfActivePlayers(), timeInRound,
+                currentPlayer.getHand().getCardMask(), boardMask, currentPlayer.getHandStrength(),
+                table.getPot(), getAmountToCall(), currentHighBet, currentPlayer.getCurrentBet(),
+                currentPlayer.getBalance());
+    }
+
+    /**
+     * Moves the turn to the next player that can still bet (not folded and not all-in).
+     * If the turn gets back to the highest better, nobody is left who can bet, or only one
+     * player is left in the hand, the betting round is over.
+     */
+    private void nextTurn() {
+        if (getNumOfActivePlayers() > 1) {
+            for (int step=1; step<=players.size(); step++) {
+                int position = (tablePosition + step) % players.size();
+                if (position == highestBetterPosition) {
+                    tablePosition = position;
+                    break;
+                }
+                if (canAct(position)) {
+                    tablePosition = position;
+                    return;
+                }
+            }
+        }
+
+        timeInRound++;
+        advanceRound();
+    }
+
+    /**
+     * Gets the first seat from the given one (going around the table) whose player has money.
+     */
+    private int nextSeatWithMoney(int position) {
+        for (int step=0; step<players.size(); step++) {
+            int seat = (position + step) % players.size();
+            if (players.get(seat).getBalance() > 0) {
+                return seat;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Gets whether the player at a position can still bet this hand.
+     */
+    private boolean canAct(int position) {
+        Player player = players.get(position);
+        return !player.isFolded() && player.getBalance() > 0;
+    }
+
+    private int getNumOfPlayersWhoCanAct() {
+        int count = 0;
+        for (int i=0; i<players.size(); i++) {
+            if (canAct(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Deals the next street, or pays out the pot if the river has been bet (or everyone else folded).
+     */
+    private void advanceRound() {
+        if (timeInRound == SHOWDOWN || getNumOfActivePlayers() == 1) {
+            winners = table.endGame(blind.getSmallPosition());     // odd chips start left of the button
+            handOver = true;
+            roundsPlayed++;
+            blind.advance();    // the blinds move on for the next hand
+            if (recorder != null) {
+                recorder.endHand(table.getCardsOnTable(), table.getPot(), winners);
+            }
+
+        } else {
+            table.dealCardsToTable(timeInRound);
+            roundHighBet = 0;
+
+            if (getNumOfPlayersWhoCanAct() < 2) {
+                // everyone else is all-in, so there is no more betting: deal the rest of the board
+                timeInRound++;
+                advanceRound();
+                return;
+            }
+
+            // the first player from here that can still bet opens the next betting round
+            while (!canAct(tablePosition)) {
+                tablePosition = (tablePosition + 1) % players.size();
+            }
+            highestBetterPosition = tablePosition;
+        }
+    }
+
+    /**
+     * Writes the blinds, the table and where the betting is for a TableCheckpoint.
+     *
+     * @param buffer - the buffer to write to
+     */
+    void writeCheckpoint(ByteBuffer buffer) {
+        blind.writeCheckpoint(buffer);
+        table.writeCheckpoint(buffer);
+        buffer.put((byte) tablePosition);
+        buffer.put((byte) (highestBetterPosition + 1));
+        TableProtocol.putVarLong(buffer, currentHighBet);
+        TableProtocol.putVarLong(buffer, roundHighBet);
+        buffer.put((byte) (timeInRound + 1));
+        buffer.put((byte) ((handOver ? 1 : 0) | (dealt ? 2 : 0)));
+        TableProtocol.putVarLong(buffer, roundsPlayed);
+        buffer.put((byte) winners.length);
+        for (int winner : winners) {
+            buffer.put((byte) winner);
+        }
+    }
+
+    /**
+     * Puts the engine (and its table and blinds) back the way writeCheckpoint() wrote it,
+     * so a hand that was being played carries on from the same action.
+     *
+     * @param buffer - the buffer to read from
+     */
+    void readCheckpoint(ByteBuffer buffer) {
+        blind.readCheckpoint(buffer);
+        table.readCheckpoint(buffer);
+        tablePosition = buffer.get() & 0xFF;
+        highestBetterPosition = (buffer.get() & 0xFF) - 1;
+        currentHighBet = TableProtocol.getVarLong(buffer);
+        roundHighBet = TableProtocol.getVarLong(buffer);
+        timeInRound = (buffer.get() & 0xFF) - 1;
+        int flags = buffer.get();
+        handOver = (flags & 1) != 0;
+        dealt = (flags & 2) != 0;
+        roundsPlayed = (int) TableProtocol.getVarLong(buffer);
+        winners = new int[buffer.get() & 0xFF];
+        for (int i=0; i<winners.length; i++) {
+            winners[i] = buffer.get() & 0xFF;
+        }
+        turnStarted = PokerMetrics.startTimer();
+    }
+
+    private void checkInHand() {
+        if (handOver) {
+            throw new IllegalStateException("There is no hand being played, start a hand first");
+        }
+    }
+
+    /**
+     * Has every hand from the next one on recorded (or stops recording if given null).
+     *
+     * @param recorder - the recorder for this table
+     */
+    public void setRecorder(HandRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public HandRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Has every hand from the next one on sent to the broadcast's spectators (or stops if given null).
+     *
+     * @param broadcast - the broadcast for this table
+     */
+    public void setBroadcast(TableBroadcast broadcast) {
+        this.broadcast = broadcast;
+    }
+
+    public TableBroadcast getBroadcast() {
+        return broadcast;
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public Blind getBlind() {
+        return blind;
+    }
+
+    /**
+     * Gets the position of the player whose turn it is.
+     *
+     * @return - the current player's position
+     */
+    public int getCurrentPosition() {
+        return tablePosition;
+    }
+
+    public Player getCurrentPlayer() {
+        return players.get(tablePosition);
+    }
+
+    /**
+     * Gets how much the current player has to put in to call.
+     *
+     * @return - the amount the current player is short of the highest bet
+     */
+    public long getAmountToCall() {
+        return Math.max(0, currentHighBet - players.get(tablePosition).getCurrentBet());
+    }
+
+    public long getCurrentHighBet() {
+        return currentHighBet;
+    }
+
+    public long getRoundHighBet() {
+        return roundHighBet;
+    }
+
+    /**
+     * Gets which part of the hand is being played (PRE_FLOP, 0 - 2 for the streets, or SHOWDOWN).
+     *
+     * @return - the time in the round
+     */
+    public int getTimeInRound() {
+        return timeInRound;
+    }
+
+    public boolean isHandOver() {
+        return handOver;
+    }
+
+    /**
+     * Gets the position(s) of the winner(s) of the last hand (multiple for a tie).
+     *
+     * @return - the winning positions, empty while a hand is being played
+     */
+    public int[] getWinners() {
+        return winners.clone();
+    }
+
+    /**
+     * Gets whether fewer than two players have chips left, so no more hands can be played.
+     *
+     * @return - a boolean indicating if the game is over
+     */
+    public boolean isGameOver() {
+        int withChips = 0;
+        for (Player player : players) {
+            if (player.getBalance() > 0) {
+                withChips++;
+            }
+        }
+        return withChips < 2;
+    }
+
+    public int getNumOfActivePlayers() {
+        return players.size() - table.getNumOfFoldedPlayers();
+    }
+
+    /**
+     * Gets the number of hands that have been finished by this engine.
+     *
+     * @return - the number of hands played
+     */
+    public int getRoundsPlayed() {
+        return roundsPlayed;
+    }
+}
@@ -0,0 +1,140 @@
+package Poker;
+
+/**
+ * What the player whose turn it is can see of a hand: their own hole cards, the board,
+ * the pot and the bets. Cards are kept as 64-bit card masks (see Card.getMask()) so a
+ * view is small and can be passed straight to HandEvaluator or EquityCalculator.
+ * Every amount is in chips (see Chips).
+ *
+ * Is created by GameEngine.getView() and never changes afterwards.
+ *
+ * @author Tyler Newman
+ */
+public final class GameView {
+
+    private final int tableId;
+    private final int seat;
+    private final int numOfSeats;
+    private final int numOfActivePlayers;
+    private final int timeInRound;
+    private final long holeMask;
+    private final long boardMask;
+    private final int handStrength;
+    private final long pot;
+    private final long amountToCall;
+    private final long currentHighBet;
+    private final long currentBet;
+    private final long balance;
+
+    GameView(int tableId, int seat, int numOfSeats, int numOfActivePlayers, int timeInRound,
+             long holeMask, long boardMask, int handStrength,
+             long pot, long amountToCall, long currentHighBet, long currentBet, long balance) {
+        this.tableId = tableId;
+        this.seat = seat;
+        this.numOfSeats = numOfSeats;
+        this.numOfActivePlayers = numOfActivePlayers;
+        this.timeInRound = timeInRound;
+        this.holeMask = holeMask;
+        this.boardMask = boardMask;
+        this.handStrength = handStrength;
+        this.pot = pot;
+        this.amountToCall = amountToCall;
+        this.currentHighBet = currentHighBet;
+        this.currentBet = currentBet;
+        this.balance = balance;
+    }
+
+    public int getTableId() {
+        return tableId;
+    }
+
+    /**
+     * Gets the position of the player the view belongs to.
+     *
+     * @return - the player's seat
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    public int getNumOfSeats() {
+        return numOfSeats;
+    }
+
+    public int getNumOfActivePlayers() {
+        return numOfActivePlayers;
+    }
+
+    /**
+     * Gets which part of the hand is being bet (GameEngine.PRE_FLOP, or 0 - 2 for the streets).
+     *
+     * @return - the time in the round
+     */
+    public int getTimeInRound() {
+        return timeInRound;
+    }
+
+    public long getHoleMask() {
+        return holeMask;
+    }
+
+    public long getBoardMask() {
+        return boardMask;
+    }
+
+    /**
+     * Gets the player's hole cards as card indexes.
+     *
+     * @return - the indexes of the hole cards
+     */
+    public int[] getHoleCards() {
+        return toIndexes(holeMask);
+    }
+
+    /**
+     * Gets the cards on the table as card indexes.
+     *
+     * @return - the indexes of the board cards (empty pre-flop)
+     */
+    public int[] getBoard() {
+        return toIndexes(boardMask);
+    }
+
+    /**
+     * Gets the strength of the player's best hand so far (see HandEvaluator).
+     *
+     * @return - the strength of the hand
+     */
+    public int getHandStrength() {
+        return handStrength;
+    }
+
+    public long getPot() {
+        return pot;
+    }
+
+    public long getAmountToCall() {
+        return amountToCall;
+    }
+
+    public long getCurrentHighBet() {
+        return currentHighBet;
+    }
+
+    public long getCurrentBet() {
+        return currentBet;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+
+    private static int[] toIndexes(long mask) {
+        int[] indexes = new int[Long.bitCount(mask)];
+        for (int i=0; i<indexes.length; i++) {
+            indexes[i] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+        return indexes;
+    }
+}
@@ -12,18 +12,22 @@ public class Hand extends Deck {
      *
      * Instance Variables:
      *     size - the size of the Deck
-     *     cards - a list of Cards it contains
+     *     cards - an array of the Cards it contains
      *
      * Methods:
      *     shuffle() - shuffles the Deck
      *     addCard(Card) - adds a new Card to the end of the Deck/Hand
      *     drawCard() - removes a Card from the Deck/Hand
+     *     clear() - removes every Card from the Deck/Hand
      *     getCards() - returns a list of Card objects
      *     getLength() - returns the length of the Deck/Hand
      *     getCardValues() - returns a list of Card values as strings
+     *     getCardIndexes() - returns the Cards as an array of indexes (0 - 51)
+     *     getCardMask() - returns the Cards as a 64-bit mask
      */
     public Hand() {
         super(2);
-        this.size = 7;      // sets the size to 7 (would be 0 otherwise) has to account for cards on the table
+        this.size = 2;      // sets the size to 2 (would be 0 otherwise), the cards on the table stay on the table
+        this.cards = new Card[size];
     }
 }
@@ -9,21 +9,56 @@ import java.util.*;
  * Is initially given the list of players.
  * Is later given the number of folded players in a round along with what cards are on the table.
  *
+ * The showdown() methods work only on the card values they are given and never change
+ * a Player or Hand, so one HandChecker can be shared by any number of threads.
+ *
  * @author Tyler Newman
  */
 public class HandChecker {
 
-    private ArrayList<Player> players;      // keeps track of the players throughout the game
+    private final ArrayList<Player> players;      // keeps track of the players throughout the game
 
 
     public HandChecker(ArrayList<Player> players) {
         this.players = players;
     }
 
+    /**
+     * Creates a HandChecker that is not tied to any players.
+     * Only the showdown() and strength methods can be used on it.
+     */
+    public HandChecker() {
+        this.players = new ArrayList<>();
+    }
+
+
+    /**
+     * Gets the strength of every player's best hand from their hand state (which already
+     * includes the cards on the table). Folded players get HandEvaluator.NO_HAND.
+     *
+     * @param strengths - where the strength of each player's hand is put, by position
+     */
+    public void getStrengths(int[] strengths) {
+        int evaluated = 0;
+        for (int i=0; i<players.size(); i++) {
+            Player player = players.get(i);
+            if (player.isFolded()) {
+                strengths[i] = HandEvaluator.NO_HAND;
+            } else {
+                strengths[i] = player.getHandStrength();
+                evaluated++;
+            }
+        }
+        if (evaluated > 1) {
+            PokerMetrics.showdown(evaluated);     // one live hand left means everyone else folded
+        }
+    }
 
     /**
      * Goes through each non-folded players hand and determines its value when compared to the pot.
-     * Returns the position of the winner.
+     * Returns the position of the winner. Each hand is reduced to a single strength,
+     * so the winner(s) are found in one pass over the players.
+     * The players' hands are only read, the cards on the table are never given to them.
      *
      * @param numOfFoldedPlayers - the number of players in the current round that are folded
      * @param cardsOnTable - an ArrayList of the cards that are on the table in the current round
@@ -31,125 +66,109 @@ public class HandChecker {
      */
     public int[] determineWinner(int numOfFoldedPlayers, ArrayList<Card> cardsOnTable) {
 
-
-        int winningPosition = 0;    // if only one player is left, they win
-
-        if ((players.size() - numOfFoldedPlayers) == 1) {
-            // if there is only one player left, they win
-            return new int[] {winningPosition};
-
-        } else if (numOfFoldedPlayers > players.size()) {
+        if (numOfFoldedPlayers > players.size()) {
             // if there are more folded players than there are players... something messed up, so throw out of bounds exception
             throw new IndexOutOfBoundsException();
         }
 
-        // an ArrayList of the values for each player (which are each stored as ArrayList<double[]>)
-        ArrayList<ArrayList<int[]>> valuesForEachPlayer = new ArrayList<>();
-        ArrayList<Integer> weightsForEachPlayer =new ArrayList<>();
-
-        for (Player player : players) {
-            if (player.isFolded()) {
-                valuesForEachPlayer.add(new ArrayList<>());     // if the player is folded, add an empty arrayList
-                weightsForEachPlayer.add(0);    // also add a 0 for their hand's weight
-
-            } else {   // only check the hands of the players that aren't folded
-
-                // add the values of the cards from the table to each player's hand
-                for (Card card : cardsOnTable) {
-                    player.giveCard(card);
-                }
-                // check the value of the player's hand
-                ArrayList<int[]> values = getValueOfHand(player.getHand().getCardValues());
-                valuesForEachPlayer.add(values);
-                weightsForEachPlayer.add(values.get(0)[0]);
+        long[] holeMasks = new long[players.size()];
+        for (int i=0; i<players.size(); i++) {
+            Player player = players.get(i);
+            if (!player.isFolded()) {   // folded players are left as 0 (no cards)
+                holeMasks[i] = player.getHand().getCardMask();
             }
         }
 
-        ArrayList<Integer> tiePositions = new ArrayList<>();
-
-        int highestValue = Collections.max(weightsForEachPlayer);
-
-        // Check if there are multiple of the same weight (a tie is present)
-        ArrayList<Integer> duplicates = new ArrayList<>();      // holds the duplicate weights
-        for (int i=0; i<weightsForEachPlayer.size()-1; i++) {
-            int weightOne = weightsForEachPlayer.get(i);
+        long boardMask = 0L;
+        for (Card card : cardsOnTable) {
+            boardMask |= card.getMask();
+        }
 
-            for (int j=i+1; j<weightsForEachPlayer.size(); j++) {
-                int weightTwo = weightsForEachPlayer.get(j);
+        return showdown(holeMasks, boardMask).getWinners();
+    }
 
-                // add the duplicate value to the duplicates list if it isn't already there
-                if (weightOne == weightTwo && !duplicates.contains(weightTwo)) {
-                    duplicates.add(weightTwo);
-                }
+    /**
+     * Ranks every seat's hole cards against the board.
+     *
+     * @param holeCards - the hole card indexes for each seat (null or empty for a folded seat)
+     * @param board - the card indexes on the table
+     * @return - the strengths, ranking and winner(s) of the showdown
+     */
+    public ShowdownResult showdown(int[][] holeCards, int[] board) {
+        long[] holeMasks = new long[holeCards.length];
+        for (int i=0; i<holeCards.length; i++) {
+            if (holeCards[i] != null) {
+                holeMasks[i] = Card.maskOf(holeCards[i]);
             }
         }
+        return showdown(holeMasks, Card.maskOf(board));
+    }
 
-        int duplicateMax;
-        try {
-            duplicateMax = Collections.max(duplicates);
-        } catch (NoSuchElementException e) {
-            duplicateMax = 0;   // if there are no duplicates, set the max to 0
-        }
-
-            // if there is a duplicate and the duplicate is on the highest weight value
-        boolean tieWins = false;
-        if ((duplicates.size() > 0) && (duplicateMax == highestValue)) {
-            winningPosition = weightsForEachPlayer.indexOf(highestValue);   // starting position
-            weightsForEachPlayer.set(winningPosition, 0);   // set the starting position to 0 to obtain the next position
-
-            boolean done = false;
-            while (!done) {
-                int nextPosition = weightsForEachPlayer.indexOf(highestValue);
-
-                int winner = compareHands(valuesForEachPlayer.get(winningPosition),
-                        valuesForEachPlayer.get(nextPosition));
-
-                // check to see if finished for later (do this before setting any positions)
-                if (nextPosition == weightsForEachPlayer.lastIndexOf(highestValue)) {
-                    done = true;
-                }
-
-                if (winner == 0) {  // if the first wins
-                    weightsForEachPlayer.set(nextPosition, 0);  // set the second position to 0 to obtain the next position later
-                    weightsForEachPlayer.set(winningPosition, 0);
+    /**
+     * Ranks every seat's hole cards against the board, with the cards given as masks.
+     *
+     * @param holeMasks - the hole cards for each seat as a mask (0 for a folded seat)
+     * @param boardMask - the cards on the table as a mask
+     * @return - the strengths, ranking and winner(s) of the showdown
+     */
+    public ShowdownResult showdown(long[] holeMasks, long boardMask) {
+        int[] strengths = new int[holeMasks.length];
+        int[] ranking = new int[holeMasks.length];
+        int ranked = 0;
+
+        for (int seat=0; seat<holeMasks.length; seat++) {
+            if (holeMasks[seat] == 0L) {
+                strengths[seat] = HandEvaluator.NO_HAND;
+                continue;
+            }
 
-                } else if (winner == 1) {   // if the second wins
-                    weightsForEachPlayer.set(winningPosition, 0);   // set the first position to 0 to obtain the next position later
-                    winningPosition = nextPosition;     // the new winning position is the second position
-                    tieWins = false;
+            strengths[seat] = getStrengthOfHand(holeMasks[seat] | boardMask);
 
-                } else {    // if it is a tie, add the positions to the tie list if they are not already there
-                    if (!tiePositions.contains(winningPosition)) {
-                        tiePositions.add(winningPosition);
-                    }
-                    if (!tiePositions.contains(nextPosition)) {
-                        tiePositions.add(nextPosition);
-                    }
-                    weightsForEachPlayer.set(winningPosition, 0);   // set the first position to 0 to obtain the next position late
-                    winningPosition = nextPosition;
-                    tieWins = true;
-                }
+            // insert the seat behind every seat that is at least as strong (at most 10 seats)
+            int place = ranked++;
+            while (place > 0 && strengths[ranking[place - 1]] < strengths[seat]) {
+                ranking[place] = ranking[place - 1];
+                place--;
             }
-
-        } else {
-            winningPosition = weightsForEachPlayer.indexOf(highestValue);
+            ranking[place] = seat;
         }
 
-            // if there IS NO TIE
-        if (!tieWins) {
-            return new int[] {winningPosition};
+        int numOfWinners = 0;
+        while (numOfWinners < ranked && strengths[ranking[numOfWinners]] == strengths[ranking[0]]) {
+            numOfWinners++;
+        }
 
-            // if there IS A TIE
-        } else {
-            int[] positions = new int[tiePositions.size()];     // an array to contain each tied position
+        int[] ranks = new int[ranked];
+        System.arraycopy(ranking, 0, ranks, 0, ranked);
+        return new ShowdownResult(strengths, ranks, numOfWinners);
+    }
 
-            for (int i=0; i<tiePositions.size(); i++) {
-                positions[i] = tiePositions.get(i);     // add each tied position to the array
-            }
+    /**
+     * Gets the strength of a hand of 5 to 7 cards as a single int (see HandEvaluator).
+     * Higher strengths are better hands and equal strengths are ties.
+     *
+     * @param cardMask - the cards in the hand as a 64-bit mask (see Card.getMask())
+     * @return - the strength of the hand
+     */
+    public int getStrengthOfHand(long cardMask) {
+        return HandEvaluator.evaluate(cardMask);
+    }
 
-            return positions;
+    /**
+     * Compares the strengths of two hands to each other to see which one is the winner.
+     * Returns 0 for first hand and 1 for second hand (-1 if tie).
+     *
+     * @param hand1Strength - the strength of hand one (see getStrengthOfHand())
+     * @param hand2Strength - the strength of hand two
+     * @return - an integer that indicates which hand won between the two
+     */
+    public int compareHands(int hand1Strength, int hand2Strength) {
+        if (hand1Strength > hand2Strength) {
+            return 0;
+        } else if (hand2Strength > hand1Strength) {
+            return 1;
         }
-
+        return -1;
     }
 
     /**
@@ -478,44 +497,34 @@ public class HandChecker {
      * @return - an array of doubles indicating the overall value of the hand
      */
     public ArrayList<int[]> getValueOfHand(ArrayList<String> hand) {
+        int[] cards = new int[hand.size()];
 
-        ArrayList<String> handValues = new ArrayList<>();   // list of all Card values
-        ArrayList<String> handSuits = new ArrayList<>();    // list of all Card suits
-
-        for (String card : hand) {
-            String[] split = card.split("-");
-            // parallel lists (one with values and one with suits)
-            handValues.add(split[0]);       // add the value of each Card to handValues
-            handSuits.add(split[1]);        // add the suit of each Card to handSuits
+        for (int i=0; i<cards.length; i++) {
+            cards[i] = Card.indexOf(hand.get(i));   // only the UI hands cards over as strings
         }
 
-        ArrayList<Integer> handIntValues = new ArrayList<>();   // holds all the values as integers
+        return getValueOfHand(cards);
+    }
 
-        for (String val : handValues) {
-            int integerVal;
-            try {
-                integerVal = (Integer.parseInt(val));
-            } catch (Exception ex) {
-                integerVal = 11;
-            }
+    /**
+     * Gets the value of one Hand containing 7 Cards given as card indexes (0 - 51).
+     * See getValueOfHand(ArrayList) for the ranking of the hands.
+     *
+     * @param cards - the indexes of the cards in a specific hand
+     * @return - an array of doubles indicating the overall value of the hand
+     */
+    public ArrayList<int[]> getValueOfHand(int[] cards) {
 
-            if (!(integerVal <= 10)) {     // if the value is greater than 10, add a corresponding integer
-                if (val.equals("J")) {
-                    handIntValues.add(11);
-                } else if (val.equals("Q")) {
-                    handIntValues.add(12);
-                } else if (val.equals("K")) {
-                    handIntValues.add(13);
-                } else {
-                    handIntValues.add(14);
-                }
-            } else {
-                handIntValues.add(integerVal);      // if the value is 10 or less, add the integerValue
-            }
+        ArrayList<Integer> handIntValues = new ArrayList<>();   // holds all the values as integers (2 - 14)
+        int[] handSuits = new int[cards.length];                // parallel array of the suit indexes (0 - 3)
+
+        for (int i=0; i<cards.length; i++) {
+            handIntValues.add(Card.numberOf(cards[i]));
+            handSuits[i] = Card.suitOf(cards[i]);
         }
 
         // returns an ArrayList<Double[]> of format:    {handRank, rankValue, highestPair, nextHighestPair, kickers}
-        ArrayList<int[]> flushAndStraightValues = checkFlushAndStraight(handValues, handIntValues, handSuits);
+        ArrayList<int[]> flushAndStraightValues = checkFlushAndStraight(handIntValues, handSuits);
 
         // returns an ArrayList<Double[]> of format:    {handRank, rankValue, highestPair, nextHighestPair, kickers}
         ArrayList<int[]> houseKindsAndPairsValues = checkHouseKindsAndPairs(handIntValues);
@@ -752,25 +761,21 @@ public class HandChecker {
     }
 
     /**
-     * Checks to see if given parallel lists of handValues, handIntValues, and handSuits contain
+     * Checks to see if given parallel lists of handIntValues and handSuits contain
      * either a Royal Flush, Straight Flush, Regular Flush, or Straight.
      * Is used by the getValueOfHand() method.
      *
-     * @param handValues - the values in a specific hand as strings
      * @param handIntValues - the number values in a specific hand as integers
-     * @param handSuits - the suit values in a specific hand as strings
+     * @param handSuits - the suit indexes in a specific hand (0 - 3, see Card.SUITS)
      * @return - an array of doubles indicating the overall value of the hand
      */
-    public ArrayList<int[]> checkFlushAndStraight(ArrayList<String> handValues,
-                                                     ArrayList<Integer> handIntValues,
-                                                     ArrayList<String> handSuits) {
+    public ArrayList<int[]> checkFlushAndStraight(ArrayList<Integer> handIntValues, int[] handSuits) {
         // returns a double (0.0: none, 10.0: Royal Flush, 9.0: Straight Flush, 6.0: Flush, 5.0: Straight)
         int handRank = 0;
         int rankValue = 0;
 
         ArrayList<int[]> returnValue = new ArrayList<>();
 
-        String[] royalties = {"10","J","Q","K", "A"};
         // an array to check if 5 of the suits are the same (if so, then royal flush is true)
                                  // FORMAT:     {S, D, H, C}
         Integer[] numberOfEachSuitRoyal    =    {0, 0, 0, 0};   // keep track of only royals
@@ -783,50 +788,15 @@ public class HandChecker {
         allValues.add(new ArrayList<>());
         allValues.add(new ArrayList<>());
 
-        for (int i=0; i<handSuits.size(); i++) {
-            String suit = handSuits.get(i);
-
-            // if the value is of royalty, add its suit to the array
-            if (Arrays.asList(royalties).contains(handValues.get(i))){
-
-                if (suit.equals("S")) {
-                    numberOfEachSuitRoyal[0]++;
-                    numberOfEachSuitRegular[0]++;
-                    allValues.get(0).add(handIntValues.get(i));     // also add each value to the allValues list
+        for (int i=0; i<handSuits.length; i++) {
+            int suit = handSuits[i];
 
-                } else if (suit.equals("D")) {
-                    numberOfEachSuitRoyal[1]++;
-                    numberOfEachSuitRegular[1]++;
-                    allValues.get(1).add(handIntValues.get(i));
-
-                } else if (suit.equals("H")) {
-                    numberOfEachSuitRoyal[2]++;
-                    numberOfEachSuitRegular[2]++;
-                    allValues.get(2).add(handIntValues.get(i));
-
-                } else {
-                    numberOfEachSuitRoyal[3]++;
-                    numberOfEachSuitRegular[3]++;
-                    allValues.get(3).add(handIntValues.get(i));
-                }
-            } else {
-                if (suit.equals("S")) {
-                    numberOfEachSuitRegular[0]++;
-                    allValues.get(0).add(handIntValues.get(i));
-
-                } else if (suit.equals("D")) {
-                    numberOfEachSuitRegular[1]++;
-                    allValues.get(1).add(handIntValues.get(i));
-
-                } else if (suit.equals("H")) {
-                    numberOfEachSuitRegular[2]++;
-                    allValues.get(2).add(handIntValues.get(i));
-
-                } else {
-                    numberOfEachSuitRegular[3]++;
-                    allValues.get(3).add(handIntValues.get(i));
-                }
+            // if the value is of royalty (10 through Ace), add its suit to the array
+            if (handIntValues.get(i) >= 10) {
+                numberOfEachSuitRoyal[suit]++;
             }
+            numberOfEachSuitRegular[suit]++;
+            allValues.get(suit).add(handIntValues.get(i));     // also add each value to the allValues list
         }
 
         // CHECK ROYAL FLUSH
@@ -0,0 +1,230 @@
+package Poker;
+
+/**
+ * A table-driven evaluator that maps any set of 5, 6 or 7 cards to a single int strength.
+ * A higher strength is always a better hand and equal strengths are ties, so two hands
+ * can be compared with one integer comparison.
+ *
+ * The strength is laid out as:
+ *     bits 20 - 23)   the category of the hand (HIGH_CARD through STRAIGHT_FLUSH)
+ *     bits  0 - 19)   up to five 4-bit ranks (0 = Two ... 12 = Ace), most significant first
+ *
+ * All of the work is done on 13-bit rank masks with precomputed lookup tables,
+ * so an evaluation does not allocate anything and is safe to call from any thread.
+ *
+ * @author Tyler Newman
+ */
+public final class HandEvaluator {
+
+    public static final int HIGH_CARD = 0;
+    public static final int ONE_PAIR = 1;
+    public static final int TWO_PAIR = 2;
+    public static final int THREE_OF_A_KIND = 3;
+    public static final int STRAIGHT = 4;
+    public static final int FLUSH = 5;
+    public static final int FULL_HOUSE = 6;
+    public static final int FOUR_OF_A_KIND = 7;
+    public static final int STRAIGHT_FLUSH = 8;
+
+    public static final int NO_HAND = -1;     // lower than any real strength (used for folded players)
+
+    private static final String[] HAND_NAMES = {"High Card", "One Pair", "Two Pair", "Three of a Kind",
+            "Straight", "Flush", "Full House", "Four of a Kind", "Straight Flush"};
+
+    private static final int CATEGORY_SHIFT = 20;
+    private static final int RANK_MASKS = 1 << 13;    // every possible set of the 13 ranks
+
+    // the highest rank of the best straight in a rank mask plus one (0 if there is no straight)
+    private static final byte[] STRAIGHT_HIGH = new byte[RANK_MASKS];
+
+    // the (up to) five highest ranks in a rank mask packed into 20 bits, highest first
+    private static final int[] TOP_FIVE = new int[RANK_MASKS];
+
+    static {
+        for (int mask=0; mask<RANK_MASKS; mask++) {
+            // check straights from the highest (Ace high) down to the lowest (Ace low, a.k.a. the wheel)
+            for (int high=12; high>=4; high--) {
+                int straight = 0x1F << (high - 4);
+                if ((mask & straight) == straight) {
+                    STRAIGHT_HIGH[mask] = (byte) (high + 1);
+                    break;
+                }
+            }
+            if (STRAIGHT_HIGH[mask] == 0 && (mask & 0x100F) == 0x100F) {     // A-2-3-4-5
+                STRAIGHT_HIGH[mask] = 4;    // the Five is the high card of the wheel
+            }
+
+            int packed = 0;
+            int found = 0;
+            for (int rank=12; rank>=0 && found<5; rank--) {
+                if ((mask & (1 << rank)) != 0) {
+                    packed |= rank << (16 - 4 * found);
+                    found++;
+                }
+            }
+            TOP_FIVE[mask] = packed;
+        }
+    }
+
+    private HandEvaluator() {
+        /* no instances */
+    }
+
+    /**
+     * Gets the strength of the cards in a 64-bit card mask (see Card.getMask()).
+     *
+     * @param cardMask - a mask containing 5, 6 or 7 cards
+     * @return - the strength of the best five card hand in the mask
+     */
+    public static int evaluate(long cardMask) {
+        long suits = 0L;    // four 13-bit rank masks, one per suit, 16 bits apart
+
+        for (long cards = cardMask; cards != 0; cards &= cards - 1) {
+            int index = Long.numberOfTrailingZeros(cards);
+            suits |= 1L << (((index & 3) << 4) | (index >>> 2));
+        }
+
+        return evaluateSuits((int) suits & 0x1FFF, (int) (suits >>> 16) & 0x1FFF,
+                (int) (suits >>> 32) & 0x1FFF, (int) (suits >>> 48) & 0x1FFF);
+    }
+
+    /**
+     * Gets the strength of a hand given as one rank mask per suit.
+     * The rank counts are worked out bit by bit across the four masks, so there is no loop over the ranks.
+     *
+     * @return - the strength of the hand
+     */
+    public static int evaluateSuits(int spades, int diamonds, int hearts, int clubs) {
+        int ranks = spades | diamonds | hearts | clubs;
+        int odd = spades ^ diamonds ^ hearts ^ clubs;       // ranks with one or three cards
+        int atLeastTwo = (spades & (diamonds | hearts | clubs)) | (diamonds & (hearts | clubs)) | (hearts & clubs);
+        int quads = spades & diamonds & hearts & clubs;
+        int trips = atLeastTwo & odd;
+        int pairs = atLeastTwo & ~odd & ~quads;
+
+        return evaluate(ranks, pairs, trips, quads, flushRanks(spades, diamonds, hearts, clubs));
+    }
+
+    /**
+     * Gets the strength of the given card indexes (see Card.getIndex()).
+     *
+     * @param cards - an array of 5, 6 or 7 card indexes
+     * @return - the strength of the best five card hand among the cards
+     */
+    public static int evaluate(int[] cards) {
+        return evaluate(Card.maskOf(cards));
+    }
+
+    /**
+     * Gets the strength of a hand that has already been broken down into rank masks.
+     * Each mask has one bit per rank (bit 0 = Two ... bit 12 = Ace).
+     *
+     * @param ranks - every rank that appears at least once
+     * @param pairs - the ranks that appear exactly twice
+     * @param trips - the ranks that appear exactly three times
+     * @param quads - the ranks that appear four times
+     * @param flush - the ranks of the suit that has five or more cards (0 if there is no flush)
+     * @return - the strength of the hand
+     */
+    public static int evaluate(int ranks, int pairs, int trips, int quads, int flush) {
+
+        if (flush != 0 && STRAIGHT_HIGH[flush] != 0) {
+            return strength(STRAIGHT_FLUSH, (STRAIGHT_HIGH[flush] - 1) << 16);
+        }
+
+        if (quads != 0) {
+            int quad = highestRank(quads);
+            return strength(FOUR_OF_A_KIND, (quad << 16) | oneKicker(ranks & ~(1 << quad)));
+        }
+
+        if (trips != 0) {
+            int trip = highestRank(trips);
+            int rest = (trips & ~(1 << trip)) | pairs;     // a second 3-set also fills the house
+            if (rest != 0) {
+                return strength(FULL_HOUSE, (trip << 16) | (highestRank(rest) << 12));
+            }
+        }
+
+        if (flush != 0) {
+            return strength(FLUSH, TOP_FIVE[flush]);
+        }
+
+        if (STRAIGHT_HIGH[ranks] != 0) {
+            return strength(STRAIGHT, (STRAIGHT_HIGH[ranks] - 1) << 16);
+        }
+
+        if (trips != 0) {
+            int trip = highestRank(trips);
+            return strength(THREE_OF_A_KIND, (trip << 16) | ((TOP_FIVE[ranks & ~(1 << trip)] >>> 4) & 0xFF00));
+        }
+
+        if (pairs != 0) {
+            int pair = highestRank(pairs);
+            int nextPairs = pairs & ~(1 << pair);
+
+            if (nextPairs != 0) {
+                int nextPair = highestRank(nextPairs);
+                int kickers = ranks & ~((1 << pair) | (1 << nextPair));
+                return strength(TWO_PAIR, (pair << 16) | (nextPair << 12) | ((TOP_FIVE[kickers] >>> 8) & 0xF00));
+            }
+
+            return strength(ONE_PAIR, (pair << 16) | ((TOP_FIVE[ranks & ~(1 << pair)] >>> 4) & 0xFFF0));
+        }
+
+        return strength(HIGH_CARD, TOP_FIVE[ranks]);
+    }
+
+    /**
+     * Gets the ranks of the flush suit out of four per-suit rank masks.
+     *
+     * @return - the rank mask of the suit with five or more cards (0 if there is none)
+     */
+    public static int flushRanks(int spades, int diamonds, int hearts, int clubs) {
+        if (Integer.bitCount(spades) >= 5) {
+            return spades;
+        } else if (Integer.bitCount(diamonds) >= 5) {
+            return diamonds;
+        } else if (Integer.bitCount(hearts) >= 5) {
+            return hearts;
+        } else if (Integer.bitCount(clubs) >= 5) {
+            return clubs;
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the category of a strength (HIGH_CARD through STRAIGHT_FLUSH).
+     *
+     * @param strength - a strength returned by evaluate()
+     * @return - the category of the hand
+     */
+    public static int getCategory(int strength) {
+        return strength >>> CATEGORY_SHIFT;
+    }
+
+    /**
+     * Gets the name of the hand that a strength represents (ex: "Full House").
+     *
+     * @param strength - a strength returned by evaluate()
+     * @return - the name of the hand
+     */
+    public static String getHandName(int strength) {
+        if (strength == (strength(STRAIGHT_FLUSH, 12 << 16))) {
+            return "Royal Flush";
+        }
+        return HAND_NAMES[getCategory(strength)];
+    }
+
+    private static int strength(int category, int ranks) {
+        return (category << CATEGORY_SHIFT) | ranks;
+    }
+
+    private static int highestRank(int mask) {
+        return 31 - Integer.numberOfLeadingZeros(mask);
+    }
+
+    private static int oneKicker(int mask) {
+        return (TOP_FIVE[mask] >>> 4) & 0xF000;     // the highest rank moved into the first kicker slot
+    }
+
+}
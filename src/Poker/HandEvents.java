@@ -0,0 +1,100 @@
+package Poker;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder events of a hand, so a recording taken in production shows which
+ * hand at which table was being played when a latency spike or a GC pause happened.
+ *
+ * Every event has the table's id (see Table.setId()), the number of players at the table and
+ * the pot. The events are off until a recording turns them on (ex: -XX:StartFlightRecording
+ * with a settings file that enables "poker.*"), and while they are off the code that fires
+ * them only checks shouldCommit() and fills nothing in. None of them take a stack trace.
+ *
+ *    poker.HandStart     shuffling and dealing the hole cards (GameEngine.startHand())
+ *    poker.BlindsPosted  the antes and blinds being put in (GameEngine.postBlinds())
+ *    poker.StreetDealt   the flop, turn or river being dealt (Table.dealCardsToTable())
+ *    poker.Showdown      the live hands being ranked and the pots being split (Table.endGame())
+ *    poker.Payout        the whole end of the hand, showdown and paying the winners (Table.endGame())
+ *
+ * @author Tyler Newman
+ */
+public final class HandEvents {
+
+    private HandEvents() {
+    }
+
+    @Category({"Poker", "Hand"})
+    @StackTrace(false)
+    abstract static class TableEvent extends Event {
+
+        @Label("Table Id")
+        int tableId;
+
+        @Label("Players")
+        int players;
+
+        @Label("Pot")
+        @Description("The pot in chips (see Chips)")
+        long pot;
+
+        void set(Table table) {
+            tableId = table.getId();
+            players = table.getPlayers().size();
+            pot = table.getPot();
+        }
+    }
+
+    @Name("poker.HandStart")
+    @Label("Hand Start")
+    @Description("A hand was shuffled and the hole cards were dealt")
+    static final class HandStart extends TableEvent {
+
+        @Label("Hand Number")
+        int handNumber;
+    }
+
+    @Name("poker.BlindsPosted")
+    @Label("Blinds Posted")
+    static final class BlindsPosted extends TableEvent {
+
+        @Label("Big Blind")
+        long bigBlind;
+
+        @Label("Small Blind")
+        long smallBlind;
+
+        @Label("Ante")
+        long ante;
+    }
+
+    @Name("poker.StreetDealt")
+    @Label("Street Dealt")
+    @Description("The flop (0), turn (1) or river (2) was dealt")
+    static final class StreetDealt extends TableEvent {
+
+        @Label("Street")
+        int street;
+    }
+
+    @Name("poker.Showdown")
+    @Label("Showdown")
+    static final class Showdown extends TableEvent {
+
+        @Label("Live Hands")
+        int liveHands;
+    }
+
+    @Name("poker.Payout")
+    @Label("Payout")
+    static final class Payout extends TableEvent {
+
+        @Label("Winners")
+        int winners;
+    }
+}
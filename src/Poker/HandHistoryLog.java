@@ -0,0 +1,254 @@
+package Poker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only log of hand records (see HandRecorder) kept in memory-mapped segment files.
+ *
+ * Tables never touch the files: append() only offers the record to a bounded queue and
+ * returns straight away, and a single background writer copies the records into the mapped
+ * segment. If the writer falls so far behind that the queue is full the record is dropped
+ * (and counted, see getDropped()) instead of making the table wait.
+ *
+ * Segments are named hands-000000.log, hands-000001.log, ... and a new one is started when
+ * the next record does not fit. Each segment starts with an 8 byte header (the MAGIC number
+ * and the VERSION) followed by records, each one an int length and then the record itself.
+ * A length of 0 (or the end of the file) marks the end of the segment. Segments are not cut
+ * down to the records in them: a file cannot be truncated while it is mapped on every
+ * platform (Windows refuses), so the rest of a segment is left as zeros.
+ *
+ * If the writer fails (ex: the disk is full) every record after that is dropped, and
+ * close() throws what it failed with.
+ *
+ * @author Tyler Newman
+ */
+public class HandHistoryLog implements AutoCloseable {
+
+    public static final int MAGIC = 0x504B4848;     // "PKHH"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final byte[] CLOSE = new byte[0];     // tells the writer to finish up
+
+    private final File directory;
+    private final int segmentSize;
+    private final ArrayBlockingQueue<byte[]> queue;
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long written = 0;
+    private volatile IOException failure = null;
+    private volatile boolean closed = false;
+
+    private int segmentNumber;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    /**
+     * Creates a HandHistoryLog with 64MB segments.
+     *
+     * @param directory - the directory the segments are written to
+     */
+    public HandHistoryLog(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, 65536);
+    }
+
+    /**
+     * Creates a HandHistoryLog and starts its writer. New segments are numbered after
+     * any that are already in the directory, so an old log is never written over.
+     *
+     * @param directory - the directory the segments are written to
+     * @param segmentSize - the size of each segment file in bytes
+     * @param queueCapacity - how many records can wait for the writer before new ones are dropped
+     */
+    public HandHistoryLog(File directory, int segmentSize, int queueCapacity) throws IOException {
+        if (segmentSize <= HEADER_SIZE + 4) {
+            throw new IllegalArgumentException("The segment size is too small: " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create the directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        File[] existing = listSegments(directory);
+        segmentNumber = existing.length == 0 ? 0 : segmentNumberOf(existing[existing.length - 1]) + 1;
+        openSegment();
+
+        writer = new Thread(this::writeRecords, "hand-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Offers a record to the writer. Never blocks.
+     *
+     * @param record - the encoded hand
+     * @return - a boolean indicating if the record was queued (false if it was dropped)
+     */
+    public boolean append(byte[] record) {
+        if (record.length == 0 || record.length > segmentSize - HEADER_SIZE - 4) {
+            throw new IllegalArgumentException("A record must be between 1 and "
+                    + (segmentSize - HEADER_SIZE - 4) + " bytes long");
+        }
+        if (closed || failure != null || !queue.offer(record)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes every queued record, then flushes the last segment. Throws if the writer failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            while (!queue.offer(CLOSE, 100, TimeUnit.MILLISECONDS)) {
+                if (!writer.isAlive()) {
+                    break;      // the writer failed, nobody is taking from the queue
+                }
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        dropQueued();
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeRecords() {
+        try {
+            while (true) {
+                byte[] record = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (record == CLOSE) {
+                    break;
+                }
+                if (record != null) {
+                    try {
+                        write(record);
+                    } catch (IOException e) {
+                        dropped.incrementAndGet();      // the record being written is lost too
+                        throw e;
+                    }
+                }
+            }
+            finishSegment();
+
+        } catch (IOException e) {
+            failure = e;
+            dropQueued();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts every record still in the queue as dropped and empties it.
+     */
+    private void dropQueued() {
+        byte[] record;
+        while ((record = queue.poll()) != null) {
+            if (record != CLOSE) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    private void write(byte[] record) throws IOException {
+        if (segment.remaining() < 4 + record.length) {
+            finishSegment();
+            segmentNumber++;
+            openSegment();
+        }
+        segment.putInt(record.length);
+        segment.put(record);
+        written++;
+    }
+
+    private void openSegment() throws IOException {
+        File file = new File(directory, segmentName(segmentNumber));
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+    }
+
+    /**
+     * Flushes the segment to disk. The file keeps its full size (see above), the reader
+     * stops at the first length of 0.
+     */
+    private void finishSegment() throws IOException {
+        if (segment.remaining() >= 4) {
+            segment.putInt(0);      // already zero in a new file, but says where the records end
+        }
+        segment.force();
+        segment = null;
+        channel.close();
+    }
+
+    /**
+     * Gets the number of records written to the segments so far.
+     *
+     * @return - the number of records written
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * Gets the number of records that were dropped because the writer was behind, had failed,
+     * or the log was closed.
+     *
+     * @return - the number of records dropped
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    static String segmentName(int number) {
+        return String.format("hands-%06d.log", number);
+    }
+
+    static int segmentNumberOf(File segment) {
+        String name = segment.getName();
+        return Integer.parseInt(name.substring(6, name.length() - 4));
+    }
+
+    /**
+     * Gets the segment files in a directory in the order they were written.
+     *
+     * @param directory - the directory of a HandHistoryLog
+     * @return - the segment files, oldest first
+     */
+    public static File[] listSegments(File directory) {
+        File[] segments = directory.listFiles((dir, name) -> name.matches("hands-\\d{6}\\.log"));
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments);
+        return segments;
+    }
+}
@@ -0,0 +1,90 @@
+package Poker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the hand records of one segment of a HandHistoryLog, front to back.
+ * The segment is memory-mapped read-only and every record is decoded straight out of
+ * the mapping into a HandRecord the caller reuses, so nothing is allocated per hand.
+ *
+ * @author Tyler Newman
+ */
+public class HandHistoryReader implements AutoCloseable {
+
+    private final File segmentFile;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer segment;
+    private long recordsRead = 0;
+
+    /**
+     * Opens a segment and checks its header.
+     *
+     * @param segmentFile - the segment file to read
+     */
+    public HandHistoryReader(File segmentFile) throws IOException {
+        this.segmentFile = segmentFile;
+        this.file = new RandomAccessFile(segmentFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (segment.remaining() < HandHistoryLog.HEADER_SIZE
+                    || segment.getInt() != HandHistoryLog.MAGIC) {
+                throw new IOException(segmentFile + " is not a hand history segment");
+            }
+            int version = segment.getInt();
+            if (version != HandHistoryLog.VERSION) {
+                throw new IOException(segmentFile + " has unknown version " + version);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the next record of the segment.
+     *
+     * @param record - the record to decode into
+     * @return - a boolean indicating if there was another record
+     */
+    public boolean next(HandRecord record) throws IOException {
+        if (segment.remaining() < 4) {
+            return false;
+        }
+        int length = segment.getInt();
+        if (length == 0) {
+            return false;       // the end of a segment that was not trimmed
+        }
+        if (length < 0 || length > segment.remaining()) {
+            throw new IOException(segmentFile + " has a corrupt record at " + (segment.position() - 4));
+        }
+
+        int end = segment.position() + length;
+        int limit = segment.limit();
+        segment.limit(end);
+        try {
+            record.read(segment);
+        } catch (RuntimeException e) {
+            throw new IOException(segmentFile + " has a corrupt record at " + (end - length - 4), e);
+        } finally {
+            segment.limit(limit);
+        }
+        segment.position(end);
+        recordsRead++;
+        return true;
+    }
+
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
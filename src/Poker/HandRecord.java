@@ -0,0 +1,177 @@
+package Poker;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One hand read back from a hand history log (see HandRecorder for the format).
+ * A HandRecord is meant to be reused: HandHistoryReader.next() decodes each record
+ * into the same object, so reading a log does not create any objects per hand.
+ *
+ * Amounts are in chips (see Chips).
+ *
+ * @author Tyler Newman
+ */
+public class HandRecord {
+
+    private long tableId;
+    private long handNumber;
+    private int numOfSeats;
+    private final long[] balances = new long[HandRecorder.MAX_SEATS];
+    private final int[] holeCards = new int[HandRecorder.MAX_SEATS * 2];
+    private int numOfActions;
+    private int[] actionSeats = new int[64];
+    private int[] actionTypes = new int[64];
+    private long[] actionAmounts = new long[64];
+    private int boardSize;
+    private final int[] board = new int[5];
+    private long pot;
+    private int numOfWinners;
+    private final int[] winners = new int[HandRecorder.MAX_SEATS];
+
+    /**
+     * Decodes one record from the buffer's position up to its limit.
+     *
+     * @param buffer - the bytes of the record
+     */
+    void read(ByteBuffer buffer) {
+        tableId = getVarLong(buffer);
+        handNumber = getVarLong(buffer);
+        numOfSeats = buffer.get() & 0xFF;
+        if (numOfSeats > HandRecorder.MAX_SEATS) {
+            throw new IllegalArgumentException("Corrupt record: " + numOfSeats + " seats");
+        }
+        for (int i=0; i<numOfSeats; i++) {
+            balances[i] = getVarLong(buffer);
+            holeCards[i * 2] = buffer.get() & 0xFF;
+            holeCards[i * 2 + 1] = buffer.get() & 0xFF;
+        }
+
+        numOfActions = 0;
+        int action;
+        while ((action = buffer.get() & 0xFF) != HandRecorder.END_OF_ACTIONS) {
+            if (numOfActions == actionSeats.length) {
+                growActions();
+            }
+            int type = action & 3;
+            actionSeats[numOfActions] = action >>> 2;
+            actionTypes[numOfActions] = type;
+            actionAmounts[numOfActions] = (type == HandRecorder.BLIND || type == Action.Type.RAISE.ordinal())
+                    ? getVarLong(buffer) : 0L;
+            numOfActions++;
+        }
+
+        boardSize = buffer.get() & 0xFF;
+        if (boardSize > 5) {
+            throw new IllegalArgumentException("Corrupt record: " + boardSize + " board cards");
+        }
+        for (int i=0; i<boardSize; i++) {
+            board[i] = buffer.get() & 0xFF;
+        }
+        pot = getVarLong(buffer);
+        numOfWinners = buffer.get() & 0xFF;
+        for (int i=0; i<numOfWinners; i++) {
+            winners[i] = buffer.get() & 0xFF;
+        }
+    }
+
+    private void growActions() {
+        int length = actionSeats.length * 2;
+        actionSeats = Arrays.copyOf(actionSeats, length);
+        actionTypes = Arrays.copyOf(actionTypes, length);
+        actionAmounts = Arrays.copyOf(actionAmounts, length);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0L;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    public long getTableId() {
+        return tableId;
+    }
+
+    public long getHandNumber() {
+        return handNumber;
+    }
+
+    public int getNumOfSeats() {
+        return numOfSeats;
+    }
+
+    /**
+     * Gets how much money a seat had before the blinds were posted.
+     *
+     * @param seat - the position of the seat
+     * @return - the starting balance in chips
+     */
+    public long getBalance(int seat) {
+        return balances[seat];
+    }
+
+    /**
+     * Gets one of a seat's hole cards.
+     *
+     * @param seat - the position of the seat
+     * @param card - which hole card (0 or 1)
+     * @return - the index of the card, or HandRecorder.NO_CARD
+     */
+    public int getHoleCard(int seat, int card) {
+        return holeCards[seat * 2 + card];
+    }
+
+    public int getNumOfActions() {
+        return numOfActions;
+    }
+
+    public int getActionSeat(int action) {
+        return actionSeats[action];
+    }
+
+    /**
+     * Gets the type of an action (Action.Type.ordinal() or HandRecorder.BLIND).
+     *
+     * @param action - the number of the action in the hand
+     * @return - the type of the action
+     */
+    public int getActionType(int action) {
+        return actionTypes[action];
+    }
+
+    /**
+     * Gets the amount of a BLIND or RAISE action in chips (0 for the others).
+     *
+     * @param action - the number of the action in the hand
+     * @return - the amount of the action
+     */
+    public long getActionAmount(int action) {
+        return actionAmounts[action];
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public int getBoardCard(int card) {
+        return board[card];
+    }
+
+    public long getPot() {
+        return pot;
+    }
+
+    public int getNumOfWinners() {
+        return numOfWinners;
+    }
+
+    public int getWinner(int winner) {
+        return winners[winner];
+    }
+}
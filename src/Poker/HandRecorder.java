@@ -0,0 +1,161 @@
+package Poker;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Encodes every hand played at one table into a compact binary record and hands the
+ * finished record to a HandHistoryLog. A GameEngine with a recorder calls it as the
+ * hand goes (see GameEngine.setRecorder()), so it is only ever used by one thread.
+ *
+ * Amounts are stored in chips (see Chips) and every count or amount is a variable-length
+ * integer (7 bits per byte, low bits first), so a typical six-handed hand takes about 60 bytes.
+ *
+ * Record format (version 1):
+ *    varint   table id
+ *    varint   hand number (counts up from 0 at each table)
+ *    byte     number of seats
+ *    seats    varint starting balance, byte hole card, byte hole card (0xFF if no card)
+ *    actions  byte (seat << 2 | type), then a varint amount for BLIND and RAISE
+ *    byte     0xFF (end of the actions)
+ *    byte     number of board cards, then one byte per card
+ *    varint   pot
+ *    byte     number of winners, then one byte per winning seat
+ *
+ * The action types are Action.Type.ordinal() (RAISE = 0, CALL = 1, FOLD = 2) and BLIND = 3.
+ * A BLIND amount is the size of the blind (the big blind is always recorded first, then the
+ * small blind, then the ante as a third BLIND if the hand had one) and a
+ * RAISE amount is how much the highest bet went up.
+ *
+ * @author Tyler Newman
+ */
+public class HandRecorder {
+
+    public static final int BLIND = 3;
+    public static final int END_OF_ACTIONS = 0xFF;
+    public static final int NO_CARD = 0xFF;
+    public static final int MAX_SEATS = 63;    // the seat has to fit in the top six bits of an action
+
+    private final int tableId;
+    private final HandHistoryLog log;
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+    private long handNumber = 0;
+    private boolean recording = false;
+
+    /**
+     * Creates a HandRecorder for one table.
+     *
+     * @param tableId - the id written in every record
+     * @param log - the log the finished records are appended to
+     */
+    public HandRecorder(int tableId, HandHistoryLog log) {
+        this.tableId = tableId;
+        this.log = log;
+    }
+
+    /**
+     * Starts a new record once the hole cards are dealt (before the blinds are posted).
+     *
+     * @param players - the players at the table, in seat order
+     */
+    public void beginHand(ArrayList<Player> players) {
+        if (players.size() > MAX_SEATS) {
+            throw new IllegalArgumentException("Cannot record more than " + MAX_SEATS + " seats");
+        }
+        buffer.clear();
+        recording = true;
+
+        putVarLong(tableId);
+        putVarLong(handNumber);
+        putByte(players.size());
+        for (Player player : players) {
+            putVarLong(player.getBalance());
+            int[] hole = player.getHand().getCardIndexes();
+            putByte(hole.length > 0 ? hole[0] : NO_CARD);
+            putByte(hole.length > 1 ? hole[1] : NO_CARD);
+        }
+    }
+
+    /**
+     * Adds a posted blind to the record.
+     *
+     * @param seat - the position of the player
+     * @param amount - the size of the blind
+     */
+    public void blind(int seat, long amount) {
+        putByte(seat << 2 | BLIND);
+        putVarLong(amount);
+    }
+
+    /**
+     * Adds a Raise, Call or Fold to the record.
+     *
+     * @param seat - the position of the player
+     * @param action - the action they took
+     */
+    public void action(int seat, Action action) {
+        putByte(seat << 2 | action.getType().ordinal());
+        if (action.getType() == Action.Type.RAISE) {
+            putVarLong(action.getAmount());
+        }
+    }
+
+    /**
+     * Finishes the record with the board, pot and winners and appends it to the log.
+     *
+     * @param board - the cards on the table
+     * @param pot - the pot that was won
+     * @param winners - the winning seat(s)
+     */
+    public void endHand(ArrayList<Card> board, long pot, int[] winners) {
+        if (!recording) {
+            return;
+        }
+        putByte(END_OF_ACTIONS);
+        putByte(board.size());
+        for (Card card : board) {
+            putByte(card.getIndex());
+        }
+        putVarLong(pot);
+        putByte(winners.length);
+        for (int winner : winners) {
+            putByte(winner);
+        }
+
+        log.append(Arrays.copyOf(buffer.array(), buffer.position()));
+        recording = false;
+        handNumber++;
+    }
+
+    public int getTableId() {
+        return tableId;
+    }
+
+    public long getHandNumber() {
+        return handNumber;
+    }
+
+    private void putByte(int value) {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    private void putVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+    }
+}
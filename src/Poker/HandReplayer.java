@@ -0,0 +1,199 @@
+package Poker;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Plays recorded hands again through a Table, Blind, HandChecker and GameEngine and checks
+ * that every hand ends with the same pot and the same winners as when it was recorded.
+ * Is used to make sure a change to the evaluator or the betting rules did not change
+ * the outcome of any hand, and to rebuild anything that is derived from the hands.
+ *
+ * Every segment of a log is replayed by its own worker on a ForkJoinPool. A worker keeps
+ * one table for each number of seats and one HandRecord, and reuses them for every hand,
+ * so replaying does not create objects for each hand (beyond what the Table itself does).
+ *
+ * @author Tyler Newman
+ */
+public class HandReplayer {
+
+    private final ForkJoinPool pool;
+
+    public HandReplayer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public HandReplayer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Replays every segment of a hand history log, the segments in parallel.
+     *
+     * @param directory - the directory of the log
+     * @return - the number of hands replayed and any that did not match
+     */
+    public ReplayResult replay(File directory) throws IOException {
+        List<Callable<ReplayResult>> tasks = new ArrayList<>();
+        for (File segment : HandHistoryLog.listSegments(directory)) {
+            tasks.add(() -> replaySegment(segment));
+        }
+
+        ReplayResult total = new ReplayResult();
+        for (Future<ReplayResult> result : pool.invokeAll(tasks)) {
+            try {
+                total.add(result.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Replay was interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException("Replay failed", e.getCause());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Replays one segment on the calling thread.
+     *
+     * @param segment - the segment file
+     * @return - the number of hands replayed and any that did not match
+     */
+    public ReplayResult replaySegment(File segment) throws IOException {
+        Replay replay = new Replay();
+        try (HandHistoryReader reader = new HandHistoryReader(segment)) {
+            while (reader.next(replay.record)) {
+                replay.playRecord();
+            }
+        }
+        return replay.result;
+    }
+
+    /**
+     * The tables and record one worker reuses for every hand it replays.
+     */
+    private static class Replay {
+
+        private final HandRecord record = new HandRecord();
+        private final GameEngine[] engines = new GameEngine[HandRecorder.MAX_SEATS + 1];   // by number of seats
+        private final int[] deckOrder = new int[HandRecorder.MAX_SEATS * 2 + 5];
+        private final ReplayResult result = new ReplayResult();
+
+        void playRecord() {
+            String problem;
+            try {
+                problem = play();
+            } catch (RuntimeException e) {
+                problem = "threw " + e;
+            }
+            result.record(record, problem);
+        }
+
+        /**
+         * Plays the current record again.
+         *
+         * @return - what did not match, or null if the hand matched
+         */
+        private String play() {
+            int seats = record.getNumOfSeats();
+            GameEngine engine = engineFor(seats);
+            Table table = engine.getTable();
+            ArrayList<Player> players = table.getPlayers();
+
+            // put the deck back in the order it was dealt: first cards, second cards, then the board
+            int next = 0;
+            for (int card=0; card<2; card++) {
+                for (int seat=0; seat<seats; seat++) {
+                    deckOrder[next++] = record.getHoleCard(seat, card);
+                }
+            }
+            for (int i=0; i<record.getBoardSize(); i++) {
+                deckOrder[next++] = record.getBoardCard(i);
+            }
+
+            for (int seat=0; seat<seats; seat++) {
+                players.get(seat).setBalance(record.getBalance(seat));
+            }
+
+            // the big blind is recorded first, then the small blind
+            int actions = record.getNumOfActions();
+            if (actions < 2 || record.getActionType(0) != HandRecorder.BLIND
+                    || record.getActionType(1) != HandRecorder.BLIND) {
+                return "does not start with the blinds";
+            }
+            Blind blind = engine.getBlind();
+            blind.setBlinds(record.getActionAmount(0), record.getActionAmount(1));
+            blind.setPositions(record.getActionSeat(0), record.getActionSeat(1));
+            int first = 2;
+            if (actions > 2 && record.getActionType(2) == HandRecorder.BLIND) {
+                blind.setAnte(record.getActionAmount(2));
+                first = 3;
+            } else {
+                blind.setAnte(0);
+            }
+
+            engine.startHand(deckOrder, next);
+
+            for (int i=first; i<actions; i++) {
+                if (engine.isHandOver()) {
+                    return "was over before action " + i;
+                }
+                int seat = record.getActionSeat(i);
+                if (engine.getCurrentPosition() != seat) {
+                    return "action " + i + " was by seat " + seat + " but it is seat "
+                            + engine.getCurrentPosition() + "'s turn";
+                }
+
+                int type = record.getActionType(i);
+                if (type == Action.Type.RAISE.ordinal()) {
+                    if (!engine.raise(record.getActionAmount(i))) {
+                        return "raise " + i + " could not be made";
+                    }
+                } else if (type == Action.Type.CALL.ordinal()) {
+                    engine.call();
+                } else if (type == Action.Type.FOLD.ordinal()) {
+                    engine.fold();
+                } else {
+                    return "action " + i + " has unknown type " + type;
+                }
+            }
+
+            if (!engine.isHandOver()) {
+                return "was not over after the last action";
+            }
+            if (table.getPot() != record.getPot()) {
+                return "pot was " + table.getPot() + " instead of " + record.getPot();
+            }
+            int[] winners = engine.getWinners();
+            boolean same = winners.length == record.getNumOfWinners();
+            for (int i=0; same && i<winners.length; i++) {
+                same = winners[i] == record.getWinner(i);
+            }
+            if (!same) {
+                return "winners were " + Arrays.toString(winners);
+            }
+            return null;
+        }
+
+        private GameEngine engineFor(int seats) {
+            if (engines[seats] == null) {
+                ArrayList<String> names = new ArrayList<>();
+                for (int i=0; i<seats; i++) {
+                    names.add("Seat " + i);
+                }
+                engines[seats] = new GameEngine(new Table(names));
+            }
+            return engines[seats];
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package Poker;
+
+/**
+ * Keeps track of one player's cards as they arrive (hole cards, then the flop, turn and river)
+ * so that the strength of their best hand is always known without going back over the cards.
+ *
+ * Each card updates the rank counts, suit counts and rank masks in constant time, and the
+ * strength is then looked up straight from those masks (see HandEvaluator.evaluate()).
+ * With fewer than five cards the strength only counts pairs, sets and high cards.
+ *
+ * @author Tyler Newman
+ */
+public class HandState {
+
+    private final int[] rankCounts = new int[13];     // FORMAT: {2, 3, 4, 5, 6, 7, 8, 9, 10, J, Q, K, A}
+    private final int[] suitCounts = new int[4];      // FORMAT: {S, D, H, C}
+    private final int[] suitRanks = new int[4];       // a rank mask for each suit
+
+    private int ranks;          // every rank seen (also used for straights)
+    private int pairs;          // ranks seen exactly twice
+    private int trips;          // ranks seen exactly three times
+    private int quads;          // ranks seen four times
+    private int flushSuit = -1;
+    private long cardMask;
+    private int numOfCards;
+    private int strength = HandEvaluator.NO_HAND;
+
+    /**
+     * Adds a card to the hand and updates the strength of the best hand.
+     * A card that has already been added is ignored.
+     *
+     * @param index - the index of the card (see Card.getIndex())
+     */
+    public void addCard(int index) {
+        long bit = 1L << index;
+        if ((cardMask & bit) != 0) {
+            return;
+        }
+        cardMask |= bit;
+        numOfCards++;
+
+        int rank = index >>> 2;
+        int suit = index & 3;
+        int rankBit = 1 << rank;
+
+        // move the rank from its old count to its new one
+        int count = ++rankCounts[rank];
+        if (count == 1) {
+            ranks |= rankBit;
+        } else if (count == 2) {
+            pairs |= rankBit;
+        } else if (count == 3) {
+            pairs &= ~rankBit;
+            trips |= rankBit;
+        } else {
+            trips &= ~rankBit;
+            quads |= rankBit;
+        }
+
+        suitRanks[suit] |= rankBit;
+        if (++suitCounts[suit] >= 5) {
+            flushSuit = suit;
+        }
+
+        strength = HandEvaluator.evaluate(ranks, pairs, trips, quads, flushSuit < 0 ? 0 : suitRanks[flushSuit]);
+    }
+
+    public void addCard(Card card) {
+        addCard(card.getIndex());
+    }
+
+    /**
+     * Clears every card so that the state can be used for a new round.
+     */
+    public void reset() {
+        for (int i=0; i<13; i++) {
+            rankCounts[i] = 0;
+        }
+        for (int i=0; i<4; i++) {
+            suitCounts[i] = 0;
+            suitRanks[i] = 0;
+        }
+        ranks = 0;
+        pairs = 0;
+        trips = 0;
+        quads = 0;
+        flushSuit = -1;
+        cardMask = 0L;
+        numOfCards = 0;
+        strength = HandEvaluator.NO_HAND;
+    }
+
+    /**
+     * Gets the strength of the best hand among the cards so far (NO_HAND if there are none).
+     *
+     * @return - the current strength of the hand
+     */
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * Gets the name of the best hand among the cards so far (ex: "Two Pair").
+     *
+     * @return - the name of the current hand, or an empty string if there are no cards
+     */
+    public String getHandName() {
+        return numOfCards == 0 ? "" : HandEvaluator.getHandName(strength);
+    }
+
+    /**
+     * Gets the number of cards of a rank that have been seen.
+     *
+     * @param number - the number of the card (2 - 14)
+     * @return - how many cards of that number are in the hand
+     */
+    public int getRankCount(int number) {
+        return rankCounts[number - 2];
+    }
+
+    /**
+     * Gets the number of cards of a suit that have been seen.
+     *
+     * @param suit - the suit index (0 - 3, see Card.SUITS)
+     * @return - how many cards of that suit are in the hand
+     */
+    public int getSuitCount(int suit) {
+        return suitCounts[suit];
+    }
+
+    /**
+     * Gets every rank seen as a 13-bit mask (bit 0 = Two ... bit 12 = Ace), which is
+     * what straights and straight draws are checked against.
+     *
+     * @return - the rank mask of the hand
+     */
+    public int getRankMask() {
+        return ranks;
+    }
+
+    public long getCardMask() {
+        return cardMask;
+    }
+
+    public int getNumOfCards() {
+        return numOfCards;
+    }
+}
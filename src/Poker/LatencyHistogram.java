@@ -0,0 +1,149 @@
+package Poker;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how long something takes in fixed buckets, one for every power of two of nanoseconds
+ * (bucket i holds the times from 2^(i-1) up to 2^i - 1, bucket 0 holds 0). Recording a time
+ * is a few adds to LongAdders and never locks, so every thread can record into one histogram
+ * from its hot path.
+ *
+ * A percentile is the top of the bucket it falls in, so it is never more than twice the real
+ * time (good enough to see a tail, and it costs nothing to keep). The buckets are read without
+ * stopping the writers, so a reading taken while times are being recorded can be off by the
+ * times recorded during it.
+ *
+ * @author Tyler Newman
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+
+    public static final int NUM_OF_BUCKETS = 48;     // the last bucket holds everything from 2^46 ns (about 19.5 hours) on
+
+    private final String name;
+    private final LongAdder[] buckets = new LongAdder[NUM_OF_BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+        for (int i=0; i<NUM_OF_BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one time.
+     *
+     * @param nanos - how long it took in nanoseconds (a negative time counts as 0)
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[Math.min(64 - Long.numberOfLeadingZeros(nanos), NUM_OF_BUCKETS - 1)].increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Gets the largest time a bucket holds.
+     *
+     * @param bucket - the index of the bucket
+     * @return - the top of the bucket in nanoseconds
+     */
+    public static long getBucketTop(int bucket) {
+        return bucket == NUM_OF_BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    public long[] getBucketCounts() {
+        long[] counts = new long[NUM_OF_BUCKETS];
+        for (int i=0; i<NUM_OF_BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the time that the given fraction of the recorded times are at or under.
+     *
+     * @param fraction - the percentile as a fraction (ex: 0.99)
+     * @return - the top of the bucket the percentile falls in (capped at the largest time recorded), or 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double fraction) {
+        long[] counts = getBucketCounts();
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i=0; i<NUM_OF_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(getBucketTop(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public double getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totalNanos.sum() / count;
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return getPercentileNanos(0.5);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return getPercentileNanos(0.99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return getPercentileNanos(0.999);
+    }
+
+    /**
+     * Empties every bucket. Times recorded while it is being reset may be kept or lost.
+     */
+    @Override
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s count=%d mean=%.0fns p50=%dns p99=%dns p99.9=%dns max=%dns",
+                name, getCount(), getMeanNanos(), getP50Nanos(), getP99Nanos(), getP999Nanos(), getMaxNanos());
+    }
+}
@@ -0,0 +1,23 @@
+package Poker;
+
+/**
+ * What a LatencyHistogram shows through JMX.
+ *
+ * @author Tyler Newman
+ */
+public interface LatencyHistogramMBean {
+
+    long getCount();
+
+    double getMeanNanos();
+
+    long getMaxNanos();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+
+    long getP999Nanos();
+
+    void reset();
+}
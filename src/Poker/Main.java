@@ -1,16 +1,17 @@
 package Poker;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
-import java.io.*;
-
 
 public class Main extends Application {
 
+    private StatsStore statsStore;
+
     @Override
     public void start(Stage primaryStage) throws Exception {
         FXMLLoader loader = new FXMLLoader();
@@ -21,41 +22,14 @@ public class Main extends Application {
         primaryStage.show();
         Controller controller = loader.getController();
 
+        CardImages.preload();   // decode every card image once, before the first deal
 
-        String stats = "";
-
-        // Obtain previously recorded stats and display them
-        File file = new File("poker_stats.txt");
-
-        if (!file.exists()) {   // if the file does not already exist, create it
-            file.createNewFile();
-            FileOutputStream out = new FileOutputStream(file);
-            PrintStream printer = new PrintStream(out);
-
-            // Create new stats
-            printer.println("0");       // Rounds Played
-            printer.println("0.0");     // Highest Bet
-            printer.println("0-0");     // Best Record
-            stats = "0 0.0 0-0";
-
-        } else {    // otherwise read the file to obtain stat values
-            try {
-                FileReader fr = new FileReader("poker_stats.txt");
-                BufferedReader reader = new BufferedReader(fr);
-
-                for (int i=0; i<3; i++) {
-                    stats += reader.readLine() + " ";
-                }
 
-                reader.close();
+        // Obtain previously recorded stats in the background and display them once they are read
+        statsStore = new StatsStore();
+        controller.setStatsStore(statsStore);
+        statsStore.load().thenAccept(stats -> Platform.runLater(() -> controller.setStatInfo(stats.toString())));
 
-            } catch (IOException e) {
-                System.err.println("Could not read stats file...");
-            }
-
-        }
-
-        controller.setStatInfo(stats);
         controller.setPotLabel("$0");
         controller.setHighBetLabel("$0");
         controller.disarmCommands();
@@ -65,6 +39,13 @@ public class Main extends Application {
     }
 
 
+    @Override
+    public void stop() {
+        if (statsStore != null) {
+            statsStore.close();     // write any stats that are still waiting
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -1,31 +1,37 @@
 package Poker;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Created by ty on 10/6/15.
  * @author Tyler Newman
  *
  * A class that creates an instance of a Player to be used when playing a game of poker.
- * Takes the player's name and the amount of money they will start off with.
+ * Takes the player's name and the amount of money (in chips, see Chips) they will start off with.
  * Gives each player their own Hand, Wallet, and record.
  */
 public class Player {
 
     private String name;
     private Hand hand = new Hand();
+    private HandState handState = new HandState();      // the player's best hand, kept up to date street by street
     private Wallet wallet;
     private int wins = 0;
     private int losses = 0;
     private boolean folded;
-    private double currentBet;
+    private long currentBet;
+    private long ante;
 
-    public Player(String playerName, double money) {
+    public Player(String playerName, long money) {
         if (playerName.length() > 9) {
             throw new IllegalArgumentException("Name must be less than 10 characters");
         }
         this.name = playerName;
         this.wallet = new Wallet(money);
         this.folded = false;
-        this.currentBet = 0.0;
+        this.currentBet = 0;
+        this.ante = 0;
     }
 
     /**
@@ -35,6 +41,17 @@ public class Player {
      */
     public void giveCard(Card card) {
         hand.addCard(card);
+        handState.addCard(card);
+    }
+
+    /**
+     * Adds a card that was dealt to the table to the player's hand state, so that the strength
+     * of their best hand includes it. The card is not added to the player's Hand.
+     *
+     * @param card - the card that was dealt to the table
+     */
+    public void addTableCard(Card card) {
+        handState.addCard(card);
     }
 
     public Card takeCard() {
@@ -48,19 +65,43 @@ public class Player {
         } else {
             throw new IndexOutOfBoundsException();  // throws an out of bounds exception if the hand has 0 cards
         }
+
+        // the hand has changed, so start the hand state over from the cards that are left
+        handState.reset();
+        for (Card left : hand.getCards()) {
+            handState.addCard(left);
+        }
         return card;
     }
 
+    /**
+     * Removes every card from the player's hand (and their hand state) so a new round can be dealt.
+     *
+     */
+    public void clearHand() {
+        hand.clear();
+        handState.reset();
+    }
+
     /**
      * Adds a win to the player's overall record and adds the amount of money they won to their wallet.
      *
      * @param moneyWon - the amount of money that the player has won
      */
-    public void addWin(double moneyWon) {
+    public void addWin(long moneyWon) {
         wallet.addMoney(moneyWon);
         wins += 1;
     }
 
+    /**
+     * Gives the player back chips they bet that nobody called. This is not a win.
+     *
+     * @param amount - the amount of money to give back
+     */
+    public void refund(long amount) {
+        wallet.addMoney(amount);
+    }
+
     /**
      * Adds a loss to the player's overall record.
      *
@@ -89,22 +130,37 @@ public class Player {
 
     /**
      * Subtracts the amount a player has bet from their wallet.
+     * A player without enough money bets everything they have left.
      *
      * @param amount - the amount of money that the player has bet
+     * @return - the amount that actually left their wallet
      */
-    public void bet(double amount) {
-        if (!wallet.isEmpty()) {
-            wallet.subtractMoney(amount);
-            currentBet += amount;
-        }
+    public long bet(long amount) {
+        long paid = wallet.subtractMoney(amount);
+        currentBet += paid;
+        return paid;
+    }
+
+    /**
+     * Subtracts an ante from the player's wallet. An ante goes in the pot but does not count
+     * towards the player's bet. A player without enough money puts in everything they have left.
+     *
+     * @param amount - the size of the ante
+     * @return - the amount that actually left their wallet
+     */
+    public long postAnte(long amount) {
+        long paid = wallet.subtractMoney(amount);
+        ante += paid;
+        return paid;
     }
 
     /**
-     * Resets the overall bet amount for the player to be used in a new round.
+     * Resets the overall bet amount (and the ante) for the player to be used in a new round.
      *
      */
     public void resetCurrentBet() {
-        currentBet = 0.0;
+        currentBet = 0;
+        ante = 0;
     }
 
     /**
@@ -132,12 +188,21 @@ public class Player {
         return folded;
     }
 
+    /**
+     * Sets the balance of the player's wallet.
+     *
+     * @param amount - the new balance
+     */
+    public void setBalance(long amount) {
+        wallet.setBalance(amount);
+    }
+
     /**
      * Gets the overall balance of the player's wallet.
      *
      * @return - the balance of the player's wallet
      */
-    public double getBalance() {
+    public long getBalance() {
         return wallet.getBalance();
     }
 
@@ -146,10 +211,83 @@ public class Player {
      *
      * @return - the current overall bet for the player.
      */
-    public double getCurrentBet() {
+    public long getCurrentBet() {
         return currentBet;
     }
 
+    /**
+     * Gets everything the player has put in the pot this hand, their bets and their ante.
+     *
+     * @return - the player's contribution to the pot
+     */
+    public long getContribution() {
+        return currentBet + ante;
+    }
+
+    /**
+     * Writes the player's name, balance, bets, record, fold and hole cards for a TableCheckpoint.
+     *
+     * @param buffer - the buffer to write to
+     */
+    void writeCheckpoint(ByteBuffer buffer) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        buffer.put((byte) nameBytes.length);
+        buffer.put(nameBytes);
+        TableProtocol.putVarLong(buffer, wallet.getBalance());
+        TableProtocol.putVarLong(buffer, currentBet);
+        TableProtocol.putVarLong(buffer, ante);
+        TableProtocol.putVarLong(buffer, wins);
+        TableProtocol.putVarLong(buffer, losses);
+        buffer.put((byte) (folded ? 1 : 0));
+        long hole = hand.getCardMask();
+        buffer.put((byte) Long.bitCount(hole));
+        for (; hole != 0; hole &= hole - 1) {
+            buffer.put((byte) Long.numberOfTrailingZeros(hole));
+        }
+    }
+
+    /**
+     * Puts the player back the way writeCheckpoint() wrote them. Their hand state only has
+     * the hole cards, the Table adds the cards on the table to it.
+     *
+     * @param buffer - the buffer to read from
+     */
+    void readCheckpoint(ByteBuffer buffer) {
+        byte[] nameBytes = new byte[buffer.get() & 0xFF];
+        buffer.get(nameBytes);
+        name = new String(nameBytes, StandardCharsets.UTF_8);
+        wallet.setBalance(TableProtocol.getVarLong(buffer));
+        currentBet = TableProtocol.getVarLong(buffer);
+        ante = TableProtocol.getVarLong(buffer);
+        wins = (int) TableProtocol.getVarLong(buffer);
+        losses = (int) TableProtocol.getVarLong(buffer);
+        folded = buffer.get() != 0;
+        clearHand();
+        int holeCards = buffer.get() & 0xFF;
+        for (int i=0; i<holeCards; i++) {
+            giveCard(Card.of(buffer.get() & 0xFF));
+        }
+    }
+
+    /**
+     * Gets the strength of the player's best hand using their cards and the cards
+     * on the table so far (see HandEvaluator).
+     *
+     * @return - the current strength of the player's hand
+     */
+    public int getHandStrength() {
+        return handState.getStrength();
+    }
+
+    /**
+     * Gets the hand state of the player, which is updated as each card is dealt.
+     *
+     * @return - the player's hand state
+     */
+    public HandState getHandState() {
+        return handState;
+    }
+
     /**
      * Gets the hand of the player.
      *
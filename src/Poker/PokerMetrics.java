@@ -0,0 +1,273 @@
+package Poker;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what every table in the process does, so throughput and tail latency can be watched
+ * across thousands of tables without a profiler. Is fed straight from Table, HandChecker,
+ * Deck and GameEngine:
+ *
+ *    hands played         every hand that is paid out (Table.endGame())
+ *    showdowns            every hand where two or more live hands were compared (not won by everyone folding)
+ *    showdown evaluations every live hand compared at a showdown
+ *    hand evaluations     every time a player's hand strength is worked out (HandState, one per card it gets)
+ *    evaluator latency    how long working out every player's hand strength for one card on the table takes
+ *    action latency       the time from the deal or the last action at a table to the next action
+ *                         (how long the player whose turn it was took to answer)
+ *    deck operations      shuffles, cards dealt and decks reset
+ *
+ * The counters are LongAdders and the latencies are LatencyHistograms, so the tables' threads
+ * never lock or contend on a shared count. They can be read with register() through JMX
+ * (under "Poker:type=Metrics" and "Poker:type=Latency,name=...") or as text with dump().
+ * Timing can be turned off with setEnabled(false), then the hot paths only count.
+ *
+ * @author Tyler Newman
+ */
+public final class PokerMetrics implements PokerMetricsMBean {
+
+    public static final String DOMAIN = "Poker";
+
+    private static final long RATE_WINDOW_NANOS = 1000000000L;
+
+    private static final PokerMetrics INSTANCE = new PokerMetrics();
+
+    private static final LongAdder handsPlayed = new LongAdder();
+    private static final LongAdder showdowns = new LongAdder();
+    private static final LongAdder showdownEvaluations = new LongAdder();
+    private static final LongAdder handEvaluations = new LongAdder();
+    private static final LongAdder shuffles = new LongAdder();
+    private static final LongAdder cardsDealt = new LongAdder();
+    private static final LongAdder deckResets = new LongAdder();
+    private static final LatencyHistogram evaluatorLatency = new LatencyHistogram("evaluator");
+    private static final LatencyHistogram actionLatency = new LatencyHistogram("action");
+    private static volatile boolean enabled = true;
+
+    private long windowStart = System.nanoTime();     // for getHandsPerSecond(), guarded by this
+    private long windowHands = 0;
+    private double lastRate = 0;
+
+    private PokerMetrics() {
+    }
+
+    public static PokerMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics and both latency histograms with the platform MBean server.
+     * Does nothing for any of them that are already registered.
+     */
+    public static void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            registerIfAbsent(server, INSTANCE, new ObjectName(DOMAIN + ":type=Metrics"));
+            registerIfAbsent(server, evaluatorLatency, new ObjectName(DOMAIN + ":type=Latency,name=Evaluator"));
+            registerIfAbsent(server, actionLatency, new ObjectName(DOMAIN + ":type=Latency,name=Action"));
+        } catch (JMException e) {
+            throw new IllegalStateException("The metrics could not be registered", e);
+        }
+    }
+
+    private static void registerIfAbsent(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        if (!server.isRegistered(name)) {
+            server.registerMBean(bean, name);
+        }
+    }
+
+    /**
+     * Gets the time to start timing something from, or 0 when timing is turned off.
+     *
+     * @return - System.nanoTime(), or 0
+     */
+    static long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    static void handPlayed() {
+        handsPlayed.increment();
+    }
+
+    /**
+     * Counts a showdown.
+     *
+     * @param hands - the number of live hands that were compared (at least 2)
+     */
+    static void showdown(int hands) {
+        showdowns.increment();
+        showdownEvaluations.add(hands);
+    }
+
+    /**
+     * Counts hand strengths that were worked out, and how long it took if it was timed.
+     *
+     * @param evaluations - the number of hand strengths worked out
+     * @param startNanos - what startTimer() gave before they were, or 0 if they were not timed
+     */
+    static void handsEvaluated(int evaluations, long startNanos) {
+        handEvaluations.add(evaluations);
+        if (startNanos != 0) {
+            evaluatorLatency.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Counts an action and how long it took to come after the one before it.
+     *
+     * @param turnStartNanos - what startTimer() gave when the turn started
+     * @return - the time the next turn starts at
+     */
+    static long actionTaken(long turnStartNanos) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (turnStartNanos != 0) {
+            actionLatency.record(now - turnStartNanos);
+        }
+        return now;
+    }
+
+    static void shuffled() {
+        shuffles.increment();
+    }
+
+    static void cardsDealt(int cards) {
+        cardsDealt.add(cards);
+    }
+
+    static void deckReset() {
+        deckResets.increment();
+    }
+
+    public static LatencyHistogram getEvaluatorLatency() {
+        return evaluatorLatency;
+    }
+
+    public static LatencyHistogram getActionLatency() {
+        return actionLatency;
+    }
+
+    @Override
+    public long getHandsPlayed() {
+        return handsPlayed.sum();
+    }
+
+    /**
+     * Gets the rate hands were played at over the last window of at least a second. Every
+     * reader (JMX, dump()) shares the same windows and a read only starts a new one once the
+     * current one is a second old, so reading more often does not change the rate anyone sees.
+     *
+     * @return - the hands played every second
+     */
+    @Override
+    public synchronized double getHandsPerSecond() {
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if (elapsed >= RATE_WINDOW_NANOS) {
+            long hands = handsPlayed.sum();
+            lastRate = (hands - windowHands) * 1e9 / elapsed;
+            windowHands = hands;
+            windowStart = now;
+        }
+        return lastRate;
+    }
+
+    @Override
+    public long getShowdowns() {
+        return showdowns.sum();
+    }
+
+    @Override
+    public long getHandEvaluations() {
+        return handEvaluations.sum();
+    }
+
+    @Override
+    public long getShowdownEvaluations() {
+        return showdownEvaluations.sum();
+    }
+
+    @Override
+    public long getShuffles() {
+        return shuffles.sum();
+    }
+
+    @Override
+    public long getCardsDealt() {
+        return cardsDealt.sum();
+    }
+
+    @Override
+    public long getDeckResets() {
+        return deckResets.sum();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        PokerMetrics.enabled = enabled;
+    }
+
+    /**
+     * Gets every metric as text, one per line.
+     *
+     * @return - the metrics
+     */
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        text.append("hands.played ").append(getHandsPlayed()).append('\n');
+        text.append(String.format("hands.per_second %.1f%n", getHandsPerSecond()));
+        text.append("showdowns ").append(getShowdowns()).append('\n');
+        text.append("showdown.evaluations ").append(getShowdownEvaluations()).append('\n');
+        text.append("hand.evaluations ").append(getHandEvaluations()).append('\n');
+        text.append("deck.shuffles ").append(getShuffles()).append('\n');
+        text.append("deck.cards_dealt ").append(getCardsDealt()).append('\n');
+        text.append("deck.resets ").append(getDeckResets()).append('\n');
+        appendLatency(text, evaluatorLatency);
+        appendLatency(text, actionLatency);
+        return text.toString();
+    }
+
+    private static void appendLatency(StringBuilder text, LatencyHistogram histogram) {
+        String prefix = "latency." + histogram.getName() + ".";
+        text.append(prefix).append("count ").append(histogram.getCount()).append('\n');
+        text.append(String.format("%smean_ns %.0f%n", prefix, histogram.getMeanNanos()));
+        text.append(prefix).append("p50_ns ").append(histogram.getP50Nanos()).append('\n');
+        text.append(prefix).append("p99_ns ").append(histogram.getP99Nanos()).append('\n');
+        text.append(prefix).append("p999_ns ").append(histogram.getP999Nanos()).append('\n');
+        text.append(prefix).append("max_ns ").append(histogram.getMaxNanos()).append('\n');
+    }
+
+    /**
+     * Sets every count and latency back to 0.
+     */
+    @Override
+    public synchronized void reset() {
+        handsPlayed.reset();
+        showdowns.reset();
+        showdownEvaluations.reset();
+        handEvaluations.reset();
+        shuffles.reset();
+        cardsDealt.reset();
+        deckResets.reset();
+        evaluatorLatency.reset();
+        actionLatency.reset();
+        windowHands = 0;
+        windowStart = System.nanoTime();
+        lastRate = 0;
+    }
+
+    @Override
+    public String toString() {
+        return dump();
+    }
+}
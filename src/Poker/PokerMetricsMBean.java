@@ -0,0 +1,33 @@
+package Poker;
+
+/**
+ * What PokerMetrics shows through JMX.
+ *
+ * @author Tyler Newman
+ */
+public interface PokerMetricsMBean {
+
+    long getHandsPlayed();
+
+    double getHandsPerSecond();
+
+    long getShowdowns();
+
+    long getShowdownEvaluations();
+
+    long getHandEvaluations();
+
+    long getShuffles();
+
+    long getCardsDealt();
+
+    long getDeckResets();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    String dump();
+
+    void reset();
+}
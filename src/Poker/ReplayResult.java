@@ -0,0 +1,72 @@
+package Poker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of replaying a hand history: how many hands were played again and
+ * which of them did not end the way they were recorded. Only the first few
+ * mismatches are described, the rest are just counted.
+ *
+ * @author Tyler Newman
+ */
+public class ReplayResult {
+
+    public static final int MAX_DESCRIBED = 20;
+
+    private long hands = 0;
+    private long mismatches = 0;
+    private final List<String> described = new ArrayList<>();
+
+    /**
+     * Counts one replayed hand.
+     *
+     * @param record - the hand that was replayed
+     * @param problem - what did not match, or null if the hand matched
+     */
+    void record(HandRecord record, String problem) {
+        hands++;
+        if (problem != null) {
+            mismatches++;
+            if (described.size() < MAX_DESCRIBED) {
+                described.add("Table " + record.getTableId() + " hand " + record.getHandNumber() + " " + problem);
+            }
+        }
+    }
+
+    void add(ReplayResult other) {
+        hands += other.hands;
+        mismatches += other.mismatches;
+        for (String mismatch : other.described) {
+            if (described.size() < MAX_DESCRIBED) {
+                described.add(mismatch);
+            }
+        }
+    }
+
+    public long getHands() {
+        return hands;
+    }
+
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Gets a description of the first mismatches (at most MAX_DESCRIBED).
+     *
+     * @return - a copy of the descriptions
+     */
+    public List<String> getDescribedMismatches() {
+        return new ArrayList<>(described);
+    }
+
+    public boolean isClean() {
+        return mismatches == 0;
+    }
+
+    @Override
+    public String toString() {
+        return hands + " hands replayed, " + mismatches + " mismatched";
+    }
+}
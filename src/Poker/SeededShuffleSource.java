@@ -0,0 +1,55 @@
+package Poker;
+
+/**
+ * A deterministic ShuffleSource built on the SplitMix64 generator. The algorithm is written out
+ * here rather than borrowed from the JDK, so a seed always replays the same deals.
+ * Must only be used by one thread at a time.
+ */
+class SeededShuffleSource implements ShuffleSource {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private long state;
+
+    SeededShuffleSource(long seed) {
+        this.seed = seed;
+        this.state = seed;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+
+        // take 31 random bits and throw away the few values that would make the result uneven
+        int bits;
+        int value;
+        do {
+            bits = (int) (nextLong() >>> 33);
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+
+        return value;
+    }
+
+    @Override
+    public ShuffleSource split() {
+        return new SeededShuffleSource(nextLong());
+    }
+
+    /**
+     * Gets the seed this source was created with (for bug reports and replays).
+     */
+    long getSeed() {
+        return seed;
+    }
+
+    private long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
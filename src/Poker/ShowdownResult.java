@@ -0,0 +1,73 @@
+package Poker;
+
+/**
+ * The result of a showdown: the strength of every seat's hand, the seats ranked from
+ * the best hand to the worst, and the seat(s) holding the best hand.
+ * Seats that had no cards (folded or empty) have a strength of HandEvaluator.NO_HAND
+ * and are left out of the ranking.
+ *
+ * Is created by HandChecker.showdown() and never changes afterwards.
+ *
+ * @author Tyler Newman
+ */
+public class ShowdownResult {
+
+    private final int[] strengths;
+    private final int[] ranking;
+    private final int numOfWinners;
+
+    ShowdownResult(int[] strengths, int[] ranking, int numOfWinners) {
+        this.strengths = strengths;
+        this.ranking = ranking;
+        this.numOfWinners = numOfWinners;
+    }
+
+    /**
+     * Gets the strength of the hand at a seat (see HandEvaluator).
+     *
+     * @param seat - the position of the seat
+     * @return - the strength of the seat's hand, or NO_HAND if it had no cards
+     */
+    public int getStrength(int seat) {
+        return strengths[seat];
+    }
+
+    /**
+     * Gets the seats that took part in the showdown, ordered from the best hand to the worst.
+     * Seats with equal hands keep their seat order.
+     *
+     * @return - a copy of the ranked seat positions
+     */
+    public int[] getRanking() {
+        return ranking.clone();
+    }
+
+    /**
+     * Gets the seat(s) with the best hand (multiple for a tie).
+     *
+     * @return - the winning seat positions
+     */
+    public int[] getWinners() {
+        int[] winners = new int[numOfWinners];
+        System.arraycopy(ranking, 0, winners, 0, numOfWinners);
+        return winners;
+    }
+
+    public int getNumOfWinners() {
+        return numOfWinners;
+    }
+
+    /**
+     * Gets whether the seat holds (or shares) the best hand.
+     *
+     * @param seat - the position of the seat
+     * @return - a boolean indicating if the seat won
+     */
+    public boolean isWinner(int seat) {
+        return numOfWinners > 0 && strengths[seat] == strengths[ranking[0]];
+    }
+
+    public int getNumOfSeats() {
+        return strengths.length;
+    }
+}
@@ -0,0 +1,60 @@
+package Poker;
+
+/**
+ * A source of random numbers for shuffling and dealing.
+ *
+ * Every Deck shuffles with its own ShuffleSource, so tables and simulation workers never share
+ * a Random. A source can split() off a new independent stream, which lets one master seed hand
+ * out a separate stream to each table or worker. With the seeded() source the whole sequence
+ * of deals can be replayed exactly from the master seed.
+ *
+ * @author Tyler Newman
+ */
+public interface ShuffleSource {
+
+    /**
+     * Gets a random number between 0 (inclusive) and the bound (exclusive).
+     *
+     * @param bound - the upper bound, must be positive
+     * @return - a uniformly random number below the bound
+     */
+    int nextInt(int bound);
+
+    /**
+     * Splits off a new stream that is independent of this one.
+     * Splitting a seeded source always gives the same stream for the same position in the sequence.
+     *
+     * @return - a new source
+     */
+    ShuffleSource split();
+
+    /**
+     * Gets a fast source backed by java.util.SplittableRandom with a random seed.
+     */
+    static ShuffleSource splittable() {
+        return new SplittableShuffleSource(new java.util.SplittableRandom());
+    }
+
+    /**
+     * Gets a fast source backed by java.util.SplittableRandom with the given seed.
+     */
+    static ShuffleSource splittable(long seed) {
+        return new SplittableShuffleSource(new java.util.SplittableRandom(seed));
+    }
+
+    /**
+     * Gets the source backed by the calling thread's ThreadLocalRandom.
+     * Is never contended, but cannot be seeded or replayed.
+     */
+    static ShuffleSource threadLocal() {
+        return ThreadLocalShuffleSource.INSTANCE;
+    }
+
+    /**
+     * Gets a deterministic source for the given seed that gives the same numbers
+     * on every machine and Java version, so deals can be replayed from the seed.
+     */
+    static ShuffleSource seeded(long seed) {
+        return new SeededShuffleSource(seed);
+    }
+}
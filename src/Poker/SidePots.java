@@ -0,0 +1,241 @@
+package Poker;
+
+import java.util.Arrays;
+
+/**
+ * Splits what every player put in during a hand into the main pot and any side pots,
+ * and works out who wins each one.
+ *
+ * A pot is made for every different amount the players still in the hand put in: a player
+ * who went all-in for less can only win the chips that everyone matched up to their amount.
+ * Chips from folded players stay in the pots they reach but those players cannot win any.
+ * Chips a player still in the hand put in that nobody else matched are given back before the
+ * pots are made (see getRefund()). Getting them back is not winning a pot, so a player whose
+ * bet was only called for less by an all-in player is not a winner unless their hand wins.
+ *
+ * The live hands are ranked once (one sort of the seats by strength). Since each pot above
+ * the main pot has fewer players who can win it, the best eligible hand of the next pot is
+ * never ranked above the best of the last one, so every pot is awarded in one walk down
+ * the ranking. Split pots are divided with Chips.share() and the odd chips go to the tied
+ * winners in seat order starting from the given first seat.
+ *
+ * A SidePots only keeps the arrays it reuses from hand to hand, so each Table has its own.
+ *
+ * @author Tyler Newman
+ */
+public class SidePots {
+
+    private final int seats;
+    private final long[] ranking;       // strength << 8 | (255 - odd chip order), sorted weakest first
+    private final long[] levels;        // the different amounts the live players put in, smallest first
+    private final long[] matched;       // what every seat put in that someone else matched
+    private final long[] sorted;        // what every seat put in, smallest first
+    private final long[] potAmounts;
+    private final long[] potWinners;    // a mask of the winning seats of each pot
+    private final long[] payouts;
+    private final long[] refunds;
+    private long allWinners;            // a mask of the seats that won (or tied for) any pot
+    private int numOfPots;
+
+    /**
+     * Creates a SidePots for a table.
+     *
+     * @param seats - the number of seats at the table (at most 64)
+     */
+    public SidePots(int seats) {
+        if (seats < 1 || seats > 64) {
+            throw new IllegalArgumentException("A table must have between 1 and 64 seats");
+        }
+        this.seats = seats;
+        this.ranking = new long[seats];
+        this.levels = new long[seats];
+        this.matched = new long[seats];
+        this.sorted = new long[seats];
+        this.potAmounts = new long[seats];
+        this.potWinners = new long[seats];
+        this.payouts = new long[seats];
+        this.refunds = new long[seats];
+    }
+
+    /**
+     * Builds the pots for a finished hand and works out every seat's payout.
+     *
+     * @param contributions - how much each seat put in during the hand
+     * @param strengths - the strength of each seat's hand (HandEvaluator.NO_HAND for a folded seat)
+     * @param firstSeat - the seat the odd chips start from (usually the first seat left of the button)
+     */
+    public void resolve(long[] contributions, int[] strengths, int firstSeat) {
+        numOfPots = 0;
+        allWinners = 0L;
+        Arrays.fill(payouts, 0L);
+        Arrays.fill(refunds, 0L);
+
+        // give the part of the biggest contribution that nobody matched back to its owner
+        int topSeat = 0;
+        long second = 0;
+        for (int seat=0; seat<seats; seat++) {
+            matched[seat] = contributions[seat];
+            if (seat > 0 && contributions[seat] > contributions[topSeat]) {
+                second = contributions[topSeat];
+                topSeat = seat;
+            } else if (seat > 0) {
+                second = Math.max(second, contributions[seat]);
+            }
+        }
+        if (seats > 1 && strengths[topSeat] != HandEvaluator.NO_HAND && matched[topSeat] > second) {
+            refunds[topSeat] = matched[topSeat] - second;
+            matched[topSeat] = second;
+        }
+
+        // rank the live hands once and collect the levels they put in
+        int live = 0;
+        int numOfLevels = 0;
+        long dead = 0;      // every chip put in, the pots must add up to this
+        for (int seat=0; seat<seats; seat++) {
+            dead += matched[seat];
+            sorted[seat] = matched[seat];
+            if (strengths[seat] == HandEvaluator.NO_HAND) {
+                continue;
+            }
+            int order = (seat - firstSeat + seats) % seats;
+            ranking[live++] = ((long) strengths[seat] << 8) | (255 - order);
+            if (matched[seat] > 0) {
+                levels[numOfLevels++] = matched[seat];
+            }
+        }
+        if (live == 0) {
+            return;
+        }
+        if (numOfLevels == 0) {
+            levels[numOfLevels++] = 0;      // nobody live put anything in, the live hands share whatever is there
+        }
+        Arrays.sort(ranking, 0, live);
+        Arrays.sort(levels, 0, numOfLevels);
+        Arrays.sort(sorted);
+        long top = levels[numOfLevels - 1];
+
+        int best = live - 1;    // the best live hand that can still win the pot being awarded
+        int below = 0;          // the seats in sorted that put in no more than the last level
+        long previous = 0;
+        long total = 0;
+        for (int k=0; k<numOfLevels; k++) {
+            long level = levels[k];
+            if (k > 0 && level == previous) {
+                continue;
+            }
+
+            // every seat puts in the part of its contribution between the last level and this one
+            long amount = 0;
+            while (below < seats && sorted[below] <= level) {
+                amount += Math.max(0, sorted[below] - previous);
+                below++;
+            }
+            amount += (seats - below) * (level - previous);
+            previous = level;
+            total += amount;
+            if (level == top) {
+                amount += dead - total;     // folded chips above the last level go in the last pot
+            }
+
+            // move down the ranking to the best hand that put in enough for this pot
+            while (matched[seatOf(ranking[best], firstSeat)] < level) {
+                best--;
+            }
+            int strength = (int) (ranking[best] >>> 8);
+
+            // every eligible hand tied with it shares the pot, in odd chip order
+            int numOfWinners = 0;
+            for (int r=best; r>=0 && (int) (ranking[r] >>> 8) == strength; r--) {
+                if (matched[seatOf(ranking[r], firstSeat)] >= level) {
+                    numOfWinners++;
+                }
+            }
+            long winners = 0L;
+            int place = 0;
+            for (int r=best; r>=0 && (int) (ranking[r] >>> 8) == strength; r--) {
+                int seat = seatOf(ranking[r], firstSeat);
+                if (matched[seat] >= level) {
+                    payouts[seat] += Chips.share(amount, numOfWinners, place++);
+                    winners |= 1L << seat;
+                }
+            }
+
+            potAmounts[numOfPots] = amount;
+            potWinners[numOfPots] = winners;
+            allWinners |= winners;
+            numOfPots++;
+        }
+    }
+
+    private int seatOf(long ranked, int firstSeat) {
+        int order = 255 - (int) (ranked & 0xFF);
+        return (order + firstSeat) % seats;
+    }
+
+    /**
+     * Gets how much a seat won over all of the pots.
+     *
+     * @param seat - the position of the seat
+     * @return - the seat's payout in chips
+     */
+    public long getPayout(int seat) {
+        return payouts[seat];
+    }
+
+    /**
+     * Gets how much of a seat's contribution nobody matched and was given back to it.
+     * This is not part of getPayout().
+     *
+     * @param seat - the position of the seat
+     * @return - the chips given back to the seat
+     */
+    public long getRefund(int seat) {
+        return refunds[seat];
+    }
+
+    /**
+     * Gets whether a seat won (or split) any of the pots, even a pot with nothing in it.
+     * Getting chips back that nobody matched does not count (see getRefund()).
+     *
+     * @param seat - the position of the seat
+     * @return - a boolean indicating if the seat is a winner
+     */
+    public boolean isWinner(int seat) {
+        return (allWinners & (1L << seat)) != 0;
+    }
+
+    /**
+     * Gets the number of pots, the main pot plus every side pot.
+     *
+     * @return - the number of pots
+     */
+    public int getNumOfPots() {
+        return numOfPots;
+    }
+
+    /**
+     * Gets the size of a pot (0 is the main pot, then the side pots in order).
+     *
+     * @param pot - the number of the pot
+     * @return - the chips in the pot
+     */
+    public long getPotAmount(int pot) {
+        return potAmounts[pot];
+    }
+
+    /**
+     * Gets the seat(s) that won a pot.
+     *
+     * @param pot - the number of the pot
+     * @return - the winning seats, in seat order
+     */
+    public int[] getPotWinners(int pot) {
+        long mask = potWinners[pot];
+        int[] winners = new int[Long.bitCount(mask)];
+        for (int i=0; i<winners.length; i++) {
+            winners[i] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+        return winners;
+    }
+}
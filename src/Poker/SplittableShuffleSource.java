@@ -0,0 +1,26 @@
+package Poker;
+
+import java.util.SplittableRandom;
+
+/**
+ * A ShuffleSource backed by a SplittableRandom. Like SplittableRandom it must only be used
+ * by one thread at a time; split() gives every other thread its own source.
+ */
+class SplittableShuffleSource implements ShuffleSource {
+
+    private final SplittableRandom random;
+
+    SplittableShuffleSource(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    @Override
+    public ShuffleSource split() {
+        return new SplittableShuffleSource(random.split());
+    }
+}
@@ -0,0 +1,166 @@
+package Poker;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the all-time stats (rounds played, highest pot and best record) in the stats file
+ * (poker_stats.txt) without ever touching the disk on the caller's thread.
+ *
+ * load() and save() only hand the work to a single background writer. Saves coalesce:
+ * only the newest stats are kept while a write is waiting, so any number of saves made
+ * while the disk is busy turn into one write. Every write goes to a temporary file that is
+ * then renamed over the stats file, so the file is never left half written, and every
+ * stream is closed when the write is done.
+ *
+ * The file keeps its old format, one stat on each line.
+ *
+ * @author Tyler Newman
+ */
+public class StatsStore implements AutoCloseable {
+
+    public static final String DEFAULT_FILE = "poker_stats.txt";
+    public static final Stats EMPTY = new Stats("0", "0.0", "0-0");
+
+    private final Path file;
+    private final ExecutorService writer;
+    private final AtomicReference<Stats> pending = new AtomicReference<>();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+
+    public StatsStore() {
+        this(new File(DEFAULT_FILE));
+    }
+
+    public StatsStore(File file) {
+        this.file = file.toPath();
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the stats file in the background. If there is no file yet (or it cannot be read)
+     * the stats start out empty and a new file is written.
+     *
+     * @return - the stats, once they have been read
+     */
+    public CompletableFuture<Stats> load() {
+        return CompletableFuture.supplyAsync(() -> {
+            if (Files.exists(file)) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String rounds = reader.readLine();
+                    String pot = reader.readLine();
+                    String record = reader.readLine();
+                    if (rounds != null && pot != null && record != null) {
+                        return new Stats(rounds.trim(), pot.trim(), record.trim());
+                    }
+                } catch (IOException e) {
+                    System.err.println("Could not read stats file...");
+                }
+            }
+            write(EMPTY);
+            return EMPTY;
+        }, writer);
+    }
+
+    /**
+     * Saves the stats in the background. Never blocks: if a write is already waiting it
+     * will just write these stats instead.
+     *
+     * @param stats - the newest stats
+     */
+    public void save(Stats stats) {
+        pending.set(stats);
+        if (writeScheduled.compareAndSet(false, true)) {
+            writer.execute(this::writePending);
+        }
+    }
+
+    private void writePending() {
+        writeScheduled.set(false);      // saves from now on need another write
+        Stats stats = pending.getAndSet(null);
+        if (stats != null) {
+            write(stats);
+        }
+    }
+
+    private void write(Stats stats) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                out.write(stats.getRoundsPlayed() + "\n" + stats.getHighestPot() + "\n" + stats.getBestRecord());
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write to stats file...");
+        }
+    }
+
+    /**
+     * Writes any stats that are still waiting and stops the writer.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();      // already queued writes still run
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One set of all-time stats, kept as the strings that are shown and stored.
+     */
+    public static final class Stats {
+
+        private final String roundsPlayed;
+        private final String highestPot;
+        private final String bestRecord;
+
+        public Stats(String roundsPlayed, String highestPot, String bestRecord) {
+            this.roundsPlayed = roundsPlayed;
+            this.highestPot = highestPot;
+            this.bestRecord = bestRecord;
+        }
+
+        public String getRoundsPlayed() {
+            return roundsPlayed;
+        }
+
+        public String getHighestPot() {
+            return highestPot;
+        }
+
+        public String getBestRecord() {
+            return bestRecord;
+        }
+
+        /**
+         * Gets the stats separated by spaces, the way Controller.setStatInfo() takes them.
+         */
+        @Override
+        public String toString() {
+            return roundsPlayed + " " + highestPot + " " + bestRecord;
+        }
+    }
+}
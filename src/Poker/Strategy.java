@@ -0,0 +1,44 @@
+package Poker;
+
+/**
+ * Decides what a player does when it is their turn. A Strategy only ever sees a GameView,
+ * never the Table or the other players' cards.
+ *
+ * The TableManager collects every table in a shard that is waiting on the same Strategy
+ * and hands them over in one call to decideAll(), so a strategy with expensive lookups
+ * (ex: equity tables) can work through the whole batch at once. By default decideAll()
+ * just calls decide() for each view.
+ *
+ * One Strategy can be playing at many tables on different shards at the same time,
+ * so it must be safe to call from more than one thread.
+ *
+ * @author Tyler Newman
+ */
+public interface Strategy {
+
+    /**
+     * A strategy that calls (or checks) every time.
+     */
+    Strategy ALWAYS_CALL = view -> Action.call();
+
+    /**
+     * Decides the action for one player.
+     *
+     * @param view - what the player can see of the game
+     * @return - the action to take
+     */
+    Action decide(GameView view);
+
+    /**
+     * Decides the actions for a batch of players (usually at different tables).
+     *
+     * @param views - what each player can see of their game
+     * @param count - the number of views in the batch (the array may be longer)
+     * @param actions - where the action for views[i] is put, at actions[i]
+     */
+    default void decideAll(GameView[] views, int count, Action[] actions) {
+        for (int i=0; i<count; i++) {
+            actions[i] = decide(views[i]);
+        }
+    }
+}
@@ -0,0 +1,859 @@
+package Poker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Solves a heads-up river or turn spot with counterfactual regret minimization (CFR+), so a
+ * bot can look up a strategy for it ahead of time instead of working one out at the table.
+ *
+ * The spot is the board (4 cards for the turn, 5 for the river), the hands each player can
+ * have (their ranges), the pot, the chips each player has left behind and the bet sizes (as
+ * fractions of the pot). Player 0 is out of position and acts first on every street. The
+ * betting tree is built once: check, bet or raise each of the sizes (all-in when a size is
+ * bigger than what is left), call or fold, with at most maxRaises bets and raises a street.
+ * On the turn every river card is a chance node with the river's betting under it.
+ *
+ * Nothing is stored per node and hand as an object. The tree is a few int and long arrays,
+ * and every information set (a node and a hand of the player acting at it) is a slice of two
+ * float arrays, the regrets and the strategy sums: index = offset of the node + hand * number
+ * of actions + action. The whole range is walked at once (the values of every hand are found
+ * in one pass down the tree) and showdowns are found with a sweep over the hands sorted by
+ * strength (see HandChecker.getStrengthOfHand()), taking out the hands that share a card.
+ *
+ * Each iteration updates one player and then the other. The hands of the player being updated
+ * are split between the workers of a ForkJoinPool: every worker walks the whole tree for its
+ * own hands, and since a hand's information sets only belong to that hand, no two workers ever
+ * write the same float. The other player's strategy is only read while this happens.
+ *
+ * Amounts are in chips (see Chips) and the hole cards and board are card indexes (see Card.getIndex()).
+ *
+ * @author Tyler Newman
+ */
+public class SubgameSolver {
+
+    private static final int PLAYER = 0;
+    private static final int FOLD = 1;
+    private static final int SHOWDOWN = 2;
+    private static final int CHANCE = 3;
+
+    private final ForkJoinPool pool;
+    private final long pot;                 // in the middle before the spot starts
+    private final long stack;               // what each player can still put in
+    private final double[] betSizes;
+    private final int maxRaises;
+    private final long[] boardMasks = new long[Card.NUMBER_OF_CARDS + 1];   // 0 is the board given, 1 + card is with that river card
+    private final int chanceCards;          // the number of cards a river can be (0 on the river)
+
+    private final long[][] handMasks = new long[2][];
+    private final int[][] firstCards = new int[2][];
+    private final int[][] secondCards = new int[2][];
+    private final float[][] weights = new float[2][];
+    private final int[][] sameHand = new int[2][];      // the other player's hand with the same cards, or -1
+    private final int[][][] strengths = new int[2][][];  // by board, then hand
+    private final int[][][] sortedHands = new int[2][][]; // by board, the hands from weakest to strongest
+
+    // the tree, one entry per node
+    private int numOfNodes = 0;
+    private int[] type = new int[64];
+    private int[] actor = new int[64];      // the player acting (or folding)
+    private int[] board = new int[64];      // the board the node is on
+    private int[] firstChild = new int[64];
+    private int[] numOfChildren = new int[64];
+    private long[] bet0 = new long[64];     // what each player has put in during the spot
+    private long[] bet1 = new long[64];
+    private long[] offsets = new long[64];  // where the node's information sets start
+    private int[] children = new int[256];
+    private Action[] actions = new Action[256];     // the action that leads to each child (null under a chance node)
+    private int[] rivers = new int[256];            // the river card that leads to each child of a chance node
+    private int numOfChildLinks = 0;
+    private int maxDepth = 0;
+    private int maxActions = 1;
+
+    private final float[] regrets;
+    private final float[] strategySums;
+    private final Worker[] workers;
+    private final int root;
+    private final float weightedPairs;      // sum of both weights over every pair of hands that can be dealt together
+    private int iterations = 0;
+
+    /**
+     * Creates a solver on the common ForkJoinPool where both players can have any hand.
+     *
+     * @param board - the cards on the table (4 or 5)
+     * @param pot - the pot before the spot starts
+     * @param stack - the chips each player has left
+     * @param betSizes - the bet and raise sizes as fractions of the pot (ex: 0.5, 1.0)
+     * @param maxRaises - the most bets and raises on a street
+     */
+    public SubgameSolver(int[] board, long pot, long stack, double[] betSizes, int maxRaises) {
+        this(ForkJoinPool.commonPool(), board, allHands(board), null, allHands(board), null, pot, stack, betSizes, maxRaises);
+    }
+
+    /**
+     * Creates a solver on the common ForkJoinPool where every hand in a range is as likely.
+     *
+     * @param board - the cards on the table (4 or 5)
+     * @param hands0 - the two hole cards of every hand player 0 (out of position) can have
+     * @param hands1 - the two hole cards of every hand player 1 (in position) can have
+     * @param pot - the pot before the spot starts
+     * @param stack - the chips each player has left
+     * @param betSizes - the bet and raise sizes as fractions of the pot (ex: 0.5, 1.0)
+     * @param maxRaises - the most bets and raises on a street
+     */
+    public SubgameSolver(int[] board, int[][] hands0, int[][] hands1, long pot, long stack,
+                         double[] betSizes, int maxRaises) {
+        this(ForkJoinPool.commonPool(), board, hands0, null, hands1, null, pot, stack, betSizes, maxRaises);
+    }
+
+    /**
+     * Creates a solver.
+     *
+     * @param pool - the pool the iterations run on
+     * @param board - the cards on the table (4 or 5)
+     * @param hands0 - the two hole cards of every hand player 0 (out of position) can have
+     * @param weights0 - how likely each of player 0's hands is (null if they all are as likely)
+     * @param hands1 - the two hole cards of every hand player 1 (in position) can have
+     * @param weights1 - how likely each of player 1's hands is (null if they all are as likely)
+     * @param pot - the pot before the spot starts
+     * @param stack - the chips each player has left
+     * @param betSizes - the bet and raise sizes as fractions of the pot (ex: 0.5, 1.0)
+     * @param maxRaises - the most bets and raises on a street
+     */
+    public SubgameSolver(ForkJoinPool pool, int[] board, int[][] hands0, float[] weights0,
+                         int[][] hands1, float[] weights1, long pot, long stack,
+                         double[] betSizes, int maxRaises) {
+        if (board.length != 4 && board.length != 5) {
+            throw new IllegalArgumentException("A subgame is played on the turn (4 cards) or the river (5 cards)");
+        }
+        if (pot <= 0 || stack < 0 || maxRaises < 0) {
+            throw new IllegalArgumentException("The pot must be positive and the stack and raises cannot be negative");
+        }
+        for (double size : betSizes) {
+            if (!(size > 0)) {
+                throw new IllegalArgumentException("Bet sizes must be positive fractions of the pot");
+            }
+        }
+        this.pool = pool;
+        this.pot = pot;
+        this.stack = stack;
+        this.betSizes = betSizes.clone();
+        this.maxRaises = maxRaises;
+
+        boardMasks[0] = Card.maskOf(board);
+        if (Long.bitCount(boardMasks[0]) != board.length) {
+            throw new IllegalArgumentException("A card is on the board more than once");
+        }
+        chanceCards = board.length == 4 ? Card.NUMBER_OF_CARDS - 4 : 0;
+        for (int card=0; card<Card.NUMBER_OF_CARDS; card++) {
+            boardMasks[1 + card] = boardMasks[0] | (1L << card);
+        }
+
+        setRange(0, hands0, weights0);
+        setRange(1, hands1, weights1);
+        for (int player=0; player<2; player++) {
+            sameHand[player] = new int[handMasks[player].length];
+            for (int h=0; h<handMasks[player].length; h++) {
+                sameHand[player][h] = indexOf(handMasks[1 - player], handMasks[player][h]);
+            }
+        }
+        rankHands(0);
+        if (chanceCards > 0) {
+            for (int card=0; card<Card.NUMBER_OF_CARDS; card++) {
+                if ((boardMasks[0] & (1L << card)) == 0) {
+                    rankHands(1 + card);
+                }
+            }
+        }
+
+        float pairs = 0;
+        for (int h=0; h<handMasks[0].length; h++) {
+            for (int o=0; o<handMasks[1].length; o++) {
+                if ((handMasks[0][h] & handMasks[1][o]) == 0) {
+                    pairs += weights[0][h] * weights[1][o];
+                }
+            }
+        }
+        if (pairs == 0) {
+            throw new IllegalArgumentException("The two ranges have no hands that can be dealt together");
+        }
+        weightedPairs = pairs;
+
+        long[] infosets = {0};
+        root = build(0, 0, 0, 0, 0, 0, false, infosets);
+        if (infosets[0] > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The tree has too many information sets (" + infosets[0] + "), use fewer bet sizes or raises");
+        }
+        regrets = new float[(int) infosets[0]];
+        strategySums = new float[(int) infosets[0]];
+
+        int maxHands = Math.max(handMasks[0].length, handMasks[1].length);
+        int numOfWorkers = Math.max(1, Math.min(pool.getParallelism(), maxHands / 8));
+        workers = new Worker[numOfWorkers];
+        for (int i=0; i<numOfWorkers; i++) {
+            workers[i] = new Worker(i, maxHands);
+        }
+    }
+
+    /**
+     * Gets every hand that does not use a card on the board.
+     *
+     * @param board - the cards on the table
+     * @return - the two hole cards of every hand
+     */
+    public static int[][] allHands(int[] board) {
+        long used = Card.maskOf(board);
+        ArrayList<int[]> hands = new ArrayList<>();
+        for (int first=0; first<Card.NUMBER_OF_CARDS; first++) {
+            for (int second=first+1; second<Card.NUMBER_OF_CARDS; second++) {
+                if ((used & ((1L << first) | (1L << second))) == 0) {
+                    hands.add(new int[]{first, second});
+                }
+            }
+        }
+        return hands.toArray(new int[0][]);
+    }
+
+    private void setRange(int player, int[][] hands, float[] handWeights) {
+        if (hands.length == 0) {
+            throw new IllegalArgumentException("Player " + player + " must have at least one hand");
+        }
+        if (handWeights != null && handWeights.length != hands.length) {
+            throw new IllegalArgumentException("Player " + player + " needs a weight for every hand");
+        }
+        handMasks[player] = new long[hands.length];
+        firstCards[player] = new int[hands.length];
+        secondCards[player] = new int[hands.length];
+        weights[player] = new float[hands.length];
+        for (int h=0; h<hands.length; h++) {
+            if (hands[h].length != 2) {
+                throw new IllegalArgumentException("Every hand must have exactly 2 hole cards");
+            }
+            long mask = Card.maskOf(hands[h]);
+            if (Long.bitCount(mask) != 2 || (mask & boardMasks[0]) != 0) {
+                throw new IllegalArgumentException("Hand " + h + " of player " + player + " uses a card twice or a card on the board");
+            }
+            if (indexOf(handMasks[player], mask) >= 0) {
+                throw new IllegalArgumentException("Hand " + h + " of player " + player + " is in the range twice");
+            }
+            handMasks[player][h] = mask;
+            firstCards[player][h] = Long.numberOfTrailingZeros(mask);
+            secondCards[player][h] = 63 - Long.numberOfLeadingZeros(mask);
+            weights[player][h] = handWeights == null ? 1f : handWeights[h];
+            if (weights[player][h] < 0) {
+                throw new IllegalArgumentException("A hand cannot have a negative weight");
+            }
+        }
+    }
+
+    private static int indexOf(long[] masks, long mask) {
+        for (int i=0; i<masks.length; i++) {
+            if (masks[i] == mask) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the strength of every hand on a board and sorts the hands by it.
+     * Hands that use a card on the board get HandEvaluator.NO_HAND.
+     */
+    private void rankHands(int boardId) {
+        HandChecker handChecker = new HandChecker();
+        for (int player=0; player<2; player++) {
+            if (strengths[player] == null) {
+                strengths[player] = new int[boardMasks.length][];
+                sortedHands[player] = new int[boardMasks.length][];
+            }
+            int numOfHands = handMasks[player].length;
+            int[] handStrengths = new int[numOfHands];
+            long[] keys = new long[numOfHands];
+            for (int h=0; h<numOfHands; h++) {
+                long mask = handMasks[player][h];
+                handStrengths[h] = (mask & boardMasks[boardId]) != 0 ? HandEvaluator.NO_HAND
+                        : handChecker.getStrengthOfHand(mask | boardMasks[boardId]);
+                keys[h] = ((long) handStrengths[h] << 32) | h;    // sorts by strength, then hand
+            }
+            Arrays.sort(keys);
+            int[] sorted = new int[numOfHands];
+            for (int i=0; i<numOfHands; i++) {
+                sorted[i] = (int) keys[i];
+            }
+            strengths[player][boardId] = handStrengths;
+            sortedHands[player][boardId] = sorted;
+        }
+    }
+
+    /**
+     * Adds a node (and everything under it) to the tree.
+     *
+     * @param boardId - the board the node is on
+     * @param toAct - the player whose turn it is
+     * @param b0 - what player 0 has put in during the spot
+     * @param b1 - what player 1 has put in during the spot
+     * @param raises - the bets and raises made on this street so far
+     * @param depth - how deep in the tree the node is
+     * @param checked - whether player 0 checked to start this street
+     * @param infosets - the number of information set actions so far (is added to)
+     * @return - the index of the node
+     */
+    private int build(int boardId, int toAct, long b0, long b1, int raises, int depth,
+                      boolean checked, long[] infosets) {
+        maxDepth = Math.max(maxDepth, depth);
+        long mine = toAct == 0 ? b0 : b1;
+        long theirs = toAct == 0 ? b1 : b0;
+        long left = stack - mine;
+
+        ArrayList<Action> choices = new ArrayList<>();
+        if (mine == theirs) {
+            choices.add(Action.call());     // check
+            if (raises < maxRaises && left > 0) {
+                addSizes(choices, pot + b0 + b1, left);
+            }
+        } else {
+            choices.add(Action.fold());
+            choices.add(Action.call());
+            long behind = left - (theirs - mine);   // what would be left after calling
+            if (raises < maxRaises && behind > 0 && theirs < stack) {
+                addSizes(choices, pot + 2 * theirs, behind);
+            }
+        }
+
+        int node = newNode(PLAYER, toAct, boardId, b0, b1);
+        offsets[node] = infosets[0];
+        infosets[0] += (long) handMasks[toAct].length * choices.size();
+        maxActions = Math.max(maxActions, choices.size());
+
+        int[] built = new int[choices.size()];
+        for (int a=0; a<choices.size(); a++) {
+            Action choice = choices.get(a);
+            long call = theirs - mine;
+            if (choice.getType() == Action.Type.FOLD) {
+                built[a] = newNode(FOLD, toAct, boardId, b0, b1);
+            } else if (choice.getType() == Action.Type.CALL) {
+                long n0 = toAct == 0 ? b0 + call : b0;
+                long n1 = toAct == 1 ? b1 + call : b1;
+                boolean streetOver = call > 0 || (toAct == 1 && checked);
+                if (streetOver) {
+                    built[a] = endStreet(boardId, n0, n1, depth + 1, infosets);
+                } else {
+                    built[a] = build(boardId, 1 - toAct, n0, n1, raises, depth + 1, toAct == 0, infosets);
+                }
+            } else {
+                long put = call + choice.getAmount();
+                long n0 = toAct == 0 ? b0 + put : b0;
+                long n1 = toAct == 1 ? b1 + put : b1;
+                built[a] = build(boardId, 1 - toAct, n0, n1, raises + 1, depth + 1, false, infosets);
+            }
+            maxDepth = Math.max(maxDepth, depth + 1);
+        }
+        link(node, built, choices.toArray(new Action[0]), null);
+        return node;
+    }
+
+    /**
+     * Adds a bet or raise of every size (over what has to be called), as long as they are
+     * different amounts. A size more than what the player has left is an all-in.
+     */
+    private void addSizes(ArrayList<Action> choices, long potSize, long left) {
+        for (double size : betSizes) {
+            long amount = Math.min(left, Math.max(1, Math.round(size * potSize)));
+            boolean seen = false;
+            for (Action choice : choices) {
+                seen |= choice.getType() == Action.Type.RAISE && choice.getAmount() == amount;
+            }
+            if (!seen) {
+                choices.add(Action.raise(amount));
+            }
+        }
+    }
+
+    /**
+     * Adds what comes after the betting of a street is over: a showdown on the river, a
+     * chance node for the river card on the turn. If a player is all-in there is no more betting.
+     */
+    private int endStreet(int boardId, long b0, long b1, int depth, long[] infosets) {
+        if (boardId != 0 || chanceCards == 0) {
+            return newNode(SHOWDOWN, -1, boardId, b0, b1);
+        }
+        maxDepth = Math.max(maxDepth, depth + 1);
+        int node = newNode(CHANCE, -1, boardId, b0, b1);
+        int[] built = new int[chanceCards];
+        int[] cards = new int[chanceCards];
+        int next = 0;
+        for (int card=0; card<Card.NUMBER_OF_CARDS; card++) {
+            if ((boardMasks[0] & (1L << card)) == 0) {
+                cards[next] = card;
+                built[next++] = b0 == stack ? newNode(SHOWDOWN, -1, 1 + card, b0, b1)
+                        : build(1 + card, 0, b0, b1, 0, depth + 1, false, infosets);
+            }
+        }
+        link(node, built, null, cards);
+        return node;
+    }
+
+    private int newNode(int nodeType, int player, int boardId, long b0, long b1) {
+        if (numOfNodes == type.length) {
+            int size = type.length * 2;
+            type = Arrays.copyOf(type, size);
+            actor = Arrays.copyOf(actor, size);
+            board = Arrays.copyOf(board, size);
+            firstChild = Arrays.copyOf(firstChild, size);
+            numOfChildren = Arrays.copyOf(numOfChildren, size);
+            bet0 = Arrays.copyOf(bet0, size);
+            bet1 = Arrays.copyOf(bet1, size);
+            offsets = Arrays.copyOf(offsets, size);
+        }
+        int node = numOfNodes++;
+        type[node] = nodeType;
+        actor[node] = player;
+        board[node] = boardId;
+        bet0[node] = b0;
+        bet1[node] = b1;
+        return node;
+    }
+
+    private void link(int node, int[] built, Action[] choices, int[] cards) {
+        while (numOfChildLinks + built.length > children.length) {
+            int size = children.length * 2;
+            children = Arrays.copyOf(children, size);
+            actions = Arrays.copyOf(actions, size);
+            rivers = Arrays.copyOf(rivers, size);
+        }
+        firstChild[node] = numOfChildLinks;
+        numOfChildren[node] = built.length;
+        for (int i=0; i<built.length; i++) {
+            children[numOfChildLinks] = built[i];
+            actions[numOfChildLinks] = choices == null ? null : choices[i];
+            rivers[numOfChildLinks] = cards == null ? -1 : cards[i];
+            numOfChildLinks++;
+        }
+    }
+
+    /**
+     * Runs more iterations. Can be called again to keep improving the strategy.
+     *
+     * @param numOfIterations - the number of iterations to run (each updates both players)
+     */
+    public void solve(int numOfIterations) {
+        for (int i=0; i<numOfIterations; i++) {
+            iterations++;
+            runWorkers(0, false);
+            runWorkers(1, false);
+        }
+    }
+
+    /**
+     * Gets how much a player could win on average, over both players, by switching to the best
+     * response to the other's average strategy. Is 0 at an equilibrium.
+     *
+     * @return - the exploitability in chips per hand
+     */
+    public double getExploitability() {
+        double best0 = runWorkers(0, true) / weightedPairs;
+        double best1 = runWorkers(1, true) / weightedPairs;
+        return (best0 + best1 - pot) / 2;       // the two players' values add up to the pot at an equilibrium
+    }
+
+    private double runWorkers(int traverser, boolean bestResponse) {
+        List<Callable<Double>> tasks = new ArrayList<>();
+        for (Worker worker : workers) {
+            tasks.add(() -> worker.walk(traverser, bestResponse));
+        }
+        double total = 0;
+        try {
+            for (Future<Double> result : pool.invokeAll(tasks)) {
+                total += result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Solving was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Solving failed", e.getCause());
+        }
+        return total;
+    }
+
+    /**
+     * Walks the tree for a share of one player's hands, with buffers of its own for every depth.
+     */
+    private class Worker {
+
+        private final int index;
+        private final float[][] theirReach;
+        private final float[][] myReach;
+        private final float[][][] values;       // by depth, then action, then hand
+        private final float[][] strategy;       // by depth, then hand * actions + action
+        private final float[] cardReach = new float[Card.NUMBER_OF_CARDS];     // of the other player's hands swept so far
+        private final float[] cardTotal = new float[Card.NUMBER_OF_CARDS];     // of all of the other player's hands
+        private int me;
+        private int first;                       // the hands this worker updates
+        private int last;
+        private boolean bestResponse;
+        private float weight;
+
+        Worker(int index, int maxHands) {
+            this.index = index;
+            theirReach = new float[maxDepth + 2][maxHands];
+            myReach = new float[maxDepth + 2][maxHands];
+            values = new float[maxDepth + 2][maxActions][maxHands];
+            strategy = new float[maxDepth + 2][maxHands * maxActions];
+        }
+
+        /**
+         * Walks the whole tree for this worker's share of the player's hands.
+         *
+         * @return - the sum of the player's weighted values over those hands
+         */
+        double walk(int player, boolean isBestResponse) {
+            me = player;
+            bestResponse = isBestResponse;
+            weight = iterations;     // later iterations count for more in the average strategy
+            int numOfHands = handMasks[me].length;
+            first = (int) ((long) numOfHands * index / workers.length);
+            last = (int) ((long) numOfHands * (index + 1) / workers.length);
+
+            System.arraycopy(weights[1 - me], 0, theirReach[0], 0, handMasks[1 - me].length);
+            System.arraycopy(weights[me], 0, myReach[0], 0, numOfHands);
+            float[] out = values[maxDepth + 1][0];
+            visit(root, 0, theirReach[0], myReach[0], out);
+
+            double total = 0;
+            for (int h=first; h<last; h++) {
+                total += weights[me][h] * out[h];
+            }
+            return total;
+        }
+
+        private void visit(int node, int depth, float[] them, float[] mine, float[] out) {
+            switch (type[node]) {
+                case FOLD:
+                    fold(node, them, out);
+                    break;
+                case SHOWDOWN:
+                    showdown(node, them, out);
+                    break;
+                case CHANCE:
+                    chance(node, depth, them, mine, out);
+                    break;
+                default:
+                    if (actor[node] == me) {
+                        myTurn(node, depth, them, mine, out);
+                    } else {
+                        theirTurn(node, depth, them, mine, out);
+                    }
+            }
+        }
+
+        private void myTurn(int node, int depth, float[] them, float[] mine, float[] out) {
+            int numOfActions = numOfChildren[node];
+            long offset = offsets[node];
+            float[] sigma = strategy[depth];
+            long boardMask = boardMasks[board[node]];
+            for (int h=first; h<last; h++) {
+                regretMatch(regrets, offset + (long) h * numOfActions, numOfActions, sigma, h * numOfActions);
+            }
+
+            float[] childMine = myReach[depth + 1];
+            for (int a=0; a<numOfActions; a++) {
+                for (int h=first; h<last; h++) {
+                    childMine[h] = mine[h] * sigma[h * numOfActions + a];
+                }
+                visit(children[firstChild[node] + a], depth + 1, them, childMine, values[depth][a]);
+            }
+
+            for (int h=first; h<last; h++) {
+                if ((handMasks[me][h] & boardMask) != 0) {
+                    out[h] = 0;     // the river took one of this hand's cards
+                    continue;
+                }
+                int at = h * numOfActions;
+                if (bestResponse) {
+                    float best = values[depth][0][h];
+                    for (int a=1; a<numOfActions; a++) {
+                        best = Math.max(best, values[depth][a][h]);
+                    }
+                    out[h] = best;
+                    continue;
+                }
+                float value = 0;
+                for (int a=0; a<numOfActions; a++) {
+                    value += sigma[at + a] * values[depth][a][h];
+                }
+                out[h] = value;
+                int slot = (int) (offset + at);
+                for (int a=0; a<numOfActions; a++) {
+                    regrets[slot + a] = Math.max(0f, regrets[slot + a] + values[depth][a][h] - value);   // CFR+ keeps no negative regret
+                    strategySums[slot + a] += weight * mine[h] * sigma[at + a];
+                }
+            }
+        }
+
+        private void theirTurn(int node, int depth, float[] them, float[] mine, float[] out) {
+            int numOfActions = numOfChildren[node];
+            long offset = offsets[node];
+            int numOfTheirHands = handMasks[1 - me].length;
+            float[] sigma = strategy[depth];
+            for (int o=0; o<numOfTheirHands; o++) {
+                regretMatch(bestResponse ? strategySums : regrets, offset + (long) o * numOfActions,
+                        numOfActions, sigma, o * numOfActions);
+            }
+
+            Arrays.fill(out, first, last, 0f);
+            float[] childThem = theirReach[depth + 1];
+            float[] childValues = values[depth][0];
+            for (int a=0; a<numOfActions; a++) {
+                for (int o=0; o<numOfTheirHands; o++) {
+                    childThem[o] = them[o] * sigma[o * numOfActions + a];
+                }
+                visit(children[firstChild[node] + a], depth + 1, childThem, mine, childValues);
+                for (int h=first; h<last; h++) {
+                    out[h] += childValues[h];
+                }
+            }
+        }
+
+        private void chance(int node, int depth, float[] them, float[] mine, float[] out) {
+            Arrays.fill(out, first, last, 0f);
+            float[] childThem = theirReach[depth + 1];
+            float[] childMine = myReach[depth + 1];
+            float[] childValues = values[depth][0];
+            float share = 1f / (chanceCards - 4);   // the rivers left once both players' hole cards are out
+            int numOfTheirHands = handMasks[1 - me].length;
+
+            for (int c=0; c<numOfChildren[node]; c++) {
+                long river = 1L << rivers[firstChild[node] + c];
+                for (int o=0; o<numOfTheirHands; o++) {
+                    childThem[o] = (handMasks[1 - me][o] & river) != 0 ? 0f : them[o];
+                }
+                for (int h=first; h<last; h++) {
+                    childMine[h] = (handMasks[me][h] & river) != 0 ? 0f : mine[h];
+                }
+                visit(children[firstChild[node] + c], depth + 1, childThem, childMine, childValues);
+                for (int h=first; h<last; h++) {
+                    if ((handMasks[me][h] & river) == 0) {
+                        out[h] += share * childValues[h];
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the value of every hand when a player folds: what the winner takes times how
+         * likely the other player's hands that do not share a card with it are.
+         */
+        private void fold(int node, float[] them, float[] out) {
+            long myBet = me == 0 ? bet0[node] : bet1[node];
+            long theirBet = me == 0 ? bet1[node] : bet0[node];
+            float won = actor[node] == me ? -myBet : pot + theirBet;
+
+            float total = addUp(them);
+            long boardMask = boardMasks[board[node]];
+            for (int h=first; h<last; h++) {
+                out[h] = (handMasks[me][h] & boardMask) != 0 ? 0f : won * against(h, them, total);
+            }
+        }
+
+        /**
+         * Gets the value of every hand at a showdown in two sweeps up the hands sorted by
+         * strength: one for the other player's hands it beats and one for those it beats or ties.
+         */
+        private void showdown(int node, float[] them, float[] out) {
+            int boardId = board[node];
+            int[] mySorted = sortedHands[me][boardId];
+            int[] theirSorted = sortedHands[1 - me][boardId];
+            int[] myStrengths = strengths[me][boardId];
+            int[] theirStrengths = strengths[1 - me][boardId];
+            int other = 1 - me;
+            long bet = bet0[node];      // both bets are the same at a showdown
+            float win = pot + bet;
+            float tie = pot / 2f;
+
+            // the other player's hands each hand beats
+            Arrays.fill(cardReach, 0f);
+            float total = 0;
+            int next = 0;
+            for (int h : mySorted) {
+                while (next < theirSorted.length && theirStrengths[theirSorted[next]] < myStrengths[h]) {
+                    total += add(other, theirSorted[next++], them);
+                }
+                if (h >= first && h < last) {
+                    out[h] = total - cardReach[firstCards[me][h]] - cardReach[secondCards[me][h]];
+                }
+            }
+
+            // the ones it beats or ties, then the rest it loses to
+            float all = addUp(them);
+            Arrays.fill(cardReach, 0f);
+            total = 0;
+            next = 0;
+            for (int h : mySorted) {
+                while (next < theirSorted.length && theirStrengths[theirSorted[next]] <= myStrengths[h]) {
+                    total += add(other, theirSorted[next++], them);
+                }
+                if (h < first || h >= last) {
+                    continue;
+                }
+                if (myStrengths[h] == HandEvaluator.NO_HAND) {
+                    out[h] = 0f;    // the river took one of this hand's cards
+                    continue;
+                }
+                float same = sameHand[me][h] >= 0 ? them[sameHand[me][h]] : 0f;
+                float beats = out[h];
+                float beatsOrTies = total - cardReach[firstCards[me][h]] - cardReach[secondCards[me][h]] + same;
+                float loses = against(h, them, all) - beatsOrTies;
+                out[h] = win * beats + tie * (beatsOrTies - beats) - bet * loses;
+            }
+        }
+
+        private float add(int player, int hand, float[] reach) {
+            float r = reach[hand];
+            cardReach[firstCards[player][hand]] += r;
+            cardReach[secondCards[player][hand]] += r;
+            return r;
+        }
+
+        /**
+         * Adds up the reach of all of the other player's hands and how much of it is on each card.
+         */
+        private float addUp(float[] them) {
+            Arrays.fill(cardTotal, 0f);
+            float total = 0;
+            int other = 1 - me;
+            for (int o=0; o<handMasks[other].length; o++) {
+                float r = them[o];
+                cardTotal[firstCards[other][o]] += r;
+                cardTotal[secondCards[other][o]] += r;
+                total += r;
+            }
+            return total;
+        }
+
+        /**
+         * Gets the reach of the other player's hands that do not share a card with one of mine
+         * (after addUp() has been called).
+         */
+        private float against(int h, float[] them, float total) {
+            float same = sameHand[me][h] >= 0 ? them[sameHand[me][h]] : 0f;
+            return total - cardTotal[firstCards[me][h]] - cardTotal[secondCards[me][h]] + same;
+        }
+    }
+
+    /**
+     * Turns a slice of regrets (or strategy sums) into probabilities: each action in proportion
+     * to its positive part, or every action the same if none is positive.
+     */
+    private static void regretMatch(float[] from, long offset, int numOfActions, float[] to, int at) {
+        int slot = (int) offset;
+        float sum = 0;
+        for (int a=0; a<numOfActions; a++) {
+            sum += Math.max(0f, from[slot + a]);
+        }
+        for (int a=0; a<numOfActions; a++) {
+            to[at + a] = sum > 0 ? Math.max(0f, from[slot + a]) / sum : 1f / numOfActions;
+        }
+    }
+
+    /**
+     * Gets the average strategy a hand plays at a node, which is what converges to an equilibrium.
+     *
+     * @param node - the node (see getRoot() and getChild())
+     * @param holeCards - the two hole cards of the player acting at the node
+     * @return - the probability of each action (see getAction()), or null if the hand is not in the player's range
+     */
+    public float[] getStrategy(int node, int[] holeCards) {
+        if (type[node] != PLAYER) {
+            throw new IllegalArgumentException("Node " + node + " is not a decision");
+        }
+        int h = indexOf(handMasks[actor[node]], Card.maskOf(holeCards));
+        if (h < 0) {
+            return null;
+        }
+        int numOfActions = numOfChildren[node];
+        float[] probabilities = new float[numOfActions];
+        regretMatch(strategySums, offsets[node] + (long) h * numOfActions, numOfActions, probabilities, 0);
+        return probabilities;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * Gets the player whose turn it is at a node.
+     *
+     * @param node - the node
+     * @return - 0 (out of position) or 1 (in position), or -1 if the node is not a decision
+     */
+    public int getPlayer(int node) {
+        return type[node] == PLAYER ? actor[node] : -1;
+    }
+
+    public boolean isChance(int node) {
+        return type[node] == CHANCE;
+    }
+
+    public boolean isTerminal(int node) {
+        return type[node] == FOLD || type[node] == SHOWDOWN;
+    }
+
+    public int getNumOfActions(int node) {
+        return type[node] == PLAYER ? numOfChildren[node] : 0;
+    }
+
+    /**
+     * Gets one of the actions that can be taken at a node. A call with nothing to call is a check
+     * and a raise with nothing to call is a bet. Raise amounts are over what has to be called,
+     * like GameEngine.raise().
+     *
+     * @param node - the node
+     * @param action - the index of the action
+     * @return - the action
+     */
+    public Action getAction(int node, int action) {
+        return actions[firstChild[node] + action];
+    }
+
+    public int getChild(int node, int action) {
+        return children[firstChild[node] + action];
+    }
+
+    /**
+     * Gets the node the river's betting starts at, under a chance node.
+     *
+     * @param node - the chance node
+     * @param card - the index of the river card
+     * @return - the node, or -1 if the card cannot come on the river
+     */
+    public int getChanceChild(int node, int card) {
+        for (int c=0; c<numOfChildren[node]; c++) {
+            if (rivers[firstChild[node] + c] == card) {
+                return children[firstChild[node] + c];
+            }
+        }
+        return -1;
+    }
+
+    public int getNumOfNodes() {
+        return numOfNodes;
+    }
+
+    /**
+     * Gets the number of slots in the regret and strategy arrays (each information set has one per action).
+     *
+     * @return - the size of each array
+     */
+    public int getNumOfInfosetActions() {
+        return regrets.length;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+}
@@ -1,5 +1,6 @@
 package Poker;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -8,40 +9,48 @@ import java.util.*;
  */
 public class Table {
 
+    public static final long STARTING_MONEY = Chips.ofDollars(1000);      // the money each player sits down with
+
+    private int id = 0;                     // which table this is, for the HandEvents
     private ArrayList<Player> players;      // stores all the players
     private ArrayList<Card> cardsOnTable;   // the cards that have been dealt
     private Deck deck;
     private HandChecker handChecker;
-    private double pot = 0;
+    private long pot = 0;
     private int numOfFoldedPlayers = 0;     // keeps track of who has folded during one round
+    private SidePots sidePots;              // reused for every hand
+    private long[] contributions = new long[0];
+    private int[] strengths = new int[0];
 
+    /**
+     * Creates a Table for the given player names, so that hands can be dealt and played
+     * with or without the UI. The table shuffles with its own unseeded random stream.
+     *
+     * @param names - the names of the players sitting at the table
+     */
+    public Table(ArrayList<String> names) {
+        this(names, ShuffleSource.splittable());
+    }
 
-    private Controller controller;
-
-    public Table(Controller cont) {
-        controller = cont;
+    /**
+     * Creates a Table that shuffles with the given source. Giving every table its own
+     * stream split from one master seed makes all of their deals reproducible.
+     *
+     * @param names - the names of the players sitting at the table
+     * @param shuffleSource - the table's own source of randomness
+     */
+    public Table(ArrayList<String> names, ShuffleSource shuffleSource) {
         players = new ArrayList<>();
         cardsOnTable = new ArrayList<>();
         handChecker = new HandChecker(players);
         deck = new Deck(52);
+        deck.setShuffleSource(shuffleSource);
         deck.shuffle();
 
-        double startingMoney = 1000;
-
-        // Establish Blinds for the Game
-        double bigBlind = (int) startingMoney / 20;
-        if (bigBlind > 50) {
-            bigBlind = 50;
-        } else if (bigBlind < 10) {
-            bigBlind = 10;
-        }
-        double smallBlind = (int) bigBlind / 2;
-
-        setPlayers(controller.getPlayerNames(), startingMoney);
-
+        setPlayers(names, STARTING_MONEY);
     }
 
-    public void setPlayers(ArrayList<String> names, double startingMoney) {
+    public void setPlayers(ArrayList<String> names, long startingMoney) {
         for (String name : names) {
             try {
                 Player player = new Player(name, startingMoney);
@@ -54,20 +63,38 @@ public class Table {
     }
 
     public void dealCardsToTable(int time) {    // time is which part of the deal it is on (0 = first, 1 = second, and 1 = third)
+        HandEvents.StreetDealt event = new HandEvents.StreetDealt();
+        event.begin();
         if (time == 0) {
             for (int i=0; i<3; i++) {       // if it is the first time, deal three cards to the table
-                try {
-                    cardsOnTable.add(deck.drawCard());
-                } catch (IndexOutOfBoundsException e) {
-                    e.printStackTrace();
-                }
+                dealCardToTable();
             }
         } else if (time == 1 || time == 2) {    // if it is the second or third time, deal one card to the table
-            try {
-                cardsOnTable.add(deck.drawCard());
-            } catch (IndexOutOfBoundsException e) {
-                e.printStackTrace();
+            dealCardToTable();
+        }
+        if (event.shouldCommit()) {
+            event.set(this);
+            event.street = time;
+            event.commit();
+        }
+    }
+
+    /**
+     * Deals one card to the table and adds it to every player's hand state,
+     * so each player's best hand is updated as the card arrives.
+     */
+    private void dealCardToTable() {
+        try {
+            Card card = deck.drawCard();
+            PokerMetrics.cardsDealt(1);
+            cardsOnTable.add(card);
+            long start = PokerMetrics.startTimer();
+            for (Player player : players) {
+                player.addTableCard(card);      // works out the player's new hand strength (see HandState)
             }
+            PokerMetrics.handsEvaluated(players.size(), start);
+        } catch (IndexOutOfBoundsException e) {
+            e.printStackTrace();
         }
     }
 
@@ -79,22 +106,36 @@ public class Table {
                 e.printStackTrace();
             }
         }
+        PokerMetrics.cardsDealt(players.size() * 2);
+        PokerMetrics.handsEvaluated(players.size() * 2, 0);     // every hole card updates a hand strength too
     }
 
+    /**
+     * Clears the cards on the table. The cards go back into the deck when it is reset.
+     */
     public void takeCardsFromTable() {
-        int size = cardsOnTable.size();
-        for (int i=0; i<size; i++) {
-            deck.addCard(cardsOnTable.remove(0));
-        }
+        cardsOnTable.clear();
     }
 
+    /**
+     * Clears every player's hand. The cards go back into the deck when it is reset.
+     */
     public void takeCardsFromPlayers() {
-        for (int i = 0; i < players.size()*7; i++) {
-            try {
-                deck.addCard(players.get(i % players.size()).takeCard());
-            } catch (IndexOutOfBoundsException e) {
-                /* no-op */
-            }
+        for (Player player : players) {
+            player.clearHand();
+        }
+    }
+
+    /**
+     * Folds the player at a position and counts them as folded for the rest of the round.
+     *
+     * @param position - the position of the player that folds
+     */
+    public void foldPlayer(int position) {
+        Player player = players.get(position);
+        if (!player.isFolded()) {
+            player.fold();
+            numOfFoldedPlayers++;
         }
     }
 
@@ -110,27 +151,73 @@ public class Table {
 
 
     public int[] endGame() {
-        int[] winningPositions = handChecker.determineWinner(numOfFoldedPlayers, cardsOnTable);
+        return endGame(0);
+    }
 
-        ArrayList<Integer> positionsWon = new ArrayList<>();    // keeps track of who has won
+    /**
+     * Pays out the pot. The chips each player put in during the hand are split into the
+     * main pot and any side pots (see SidePots), and each pot goes to the best hand that
+     * can win it. The odd chips of a split pot go to the winners in seat order, starting
+     * from the given seat and going around the table (usually the first seat left of the button).
+     * Chips nobody called are given back to their owner first and do not make them a winner.
+     *
+     * @param firstSeat - the seat the odd chips start from
+     * @return - the position(s) of every player that won (or split) a pot, in seat order
+     */
+    public int[] endGame(int firstSeat) {
+        HandEvents.Payout payout = new HandEvents.Payout();
+        payout.begin();
+        int seats = players.size();
+        if (sidePots == null || contributions.length != seats) {
+            sidePots = new SidePots(seats);
+            contributions = new long[seats];
+            strengths = new int[seats];
+        }
 
-        // add all of the wins (could be multiple for a tie)
-        for (int pos : winningPositions) {
-            double moneyWon = pot / winningPositions.length;
-            players.get(pos).addWin(moneyWon);
-            positionsWon.add(pos);
+        for (int i=0; i<seats; i++) {
+            contributions[i] = players.get(i).getContribution();   // the bets are only reset between hands
+        }
+        HandEvents.Showdown showdown = new HandEvents.Showdown();
+        showdown.begin();
+        handChecker.getStrengths(strengths);
+        sidePots.resolve(contributions, strengths, firstSeat);
+        PokerMetrics.handPlayed();
+        if (showdown.shouldCommit()) {
+            showdown.set(this);
+            showdown.liveHands = seats - numOfFoldedPlayers;
+            showdown.commit();
         }
 
-        // add all of the losses
-        for (int i=0; i< players.size(); i++) {
-            if (!positionsWon.contains(i)) {    // if the player has NOT already won
+        int numOfWinners = 0;
+        for (int i=0; i<seats; i++) {
+            players.get(i).refund(sidePots.getRefund(i));
+            if (sidePots.isWinner(i)) {
+                players.get(i).addWin(sidePots.getPayout(i));
+                numOfWinners++;
+            } else {
                 players.get(i).addLoss();
             }
         }
 
+        int[] winningPositions = new int[numOfWinners];
+        int next = 0;
+        for (int i=0; i<seats; i++) {
+            if (sidePots.isWinner(i)) {
+                winningPositions[next++] = i;
+            }
+        }
+        if (payout.shouldCommit()) {
+            payout.set(this);
+            payout.winners = numOfWinners;
+            payout.commit();
+        }
         return winningPositions;
     }
 
+    public SidePots getSidePots() {
+        return sidePots;
+    }
+
     /**
      * Resets all of the players' folded booleans to false.
      * Is used when a round of poker has been finished.
@@ -143,28 +230,103 @@ public class Table {
 
         // reset all instance variables to get ready for a new round
         numOfFoldedPlayers = 0;
-        pot = 0.0;
+        pot = 0;
         takeCardsFromPlayers();
         takeCardsFromTable();
+        deck.reset();       // every card that was dealt is back in the deck
     }
 
     public void shuffleDeck() {
         deck.shuffle();
     }
 
+    /**
+     * Puts the given cards on top of the deck so they are dealt next, first to the players
+     * (one card each, then a second card each) and then to the table.
+     *
+     * @param order - the indexes of the cards in the order they are dealt
+     * @param length - how many of the cards to use
+     */
+    public void stackDeck(int[] order, int length) {
+        deck.stack(order, length);
+    }
+
+    /**
+     * Writes the players, the deck, the cards on the table and the pot for a TableCheckpoint.
+     *
+     * @param buffer - the buffer to write to
+     */
+    void writeCheckpoint(ByteBuffer buffer) {
+        buffer.put((byte) players.size());
+        for (Player player : players) {
+            player.writeCheckpoint(buffer);
+        }
+        deck.writeCheckpoint(buffer);
+        buffer.put((byte) cardsOnTable.size());
+        for (Card card : cardsOnTable) {
+            buffer.put((byte) card.getIndex());
+        }
+        TableProtocol.putVarLong(buffer, pot);
+    }
+
+    /**
+     * Puts the table back the way writeCheckpoint() wrote it. The table must have the same
+     * number of seats as the one that was written.
+     *
+     * @param buffer - the buffer to read from
+     */
+    void readCheckpoint(ByteBuffer buffer) {
+        int seats = buffer.get() & 0xFF;
+        if (seats != players.size()) {
+            throw new IllegalArgumentException("The checkpoint has " + seats + " seats, the table has " + players.size());
+        }
+        numOfFoldedPlayers = 0;
+        for (Player player : players) {
+            player.readCheckpoint(buffer);
+            if (player.isFolded()) {
+                numOfFoldedPlayers++;
+            }
+        }
+        deck.readCheckpoint(buffer);
+
+        cardsOnTable.clear();
+        int boardSize = buffer.get() & 0xFF;
+        for (int i=0; i<boardSize; i++) {
+            Card card = Card.of(buffer.get() & 0xFF);
+            cardsOnTable.add(card);
+            for (Player player : players) {
+                player.addTableCard(card);
+            }
+        }
+        pot = TableProtocol.getVarLong(buffer);
+    }
+
     public Player getPlayer(int position) {
         return players.get(position);
     }
 
+    /**
+     * Sets which table this is (ex: its id in a TableManager), so the HandEvents fired at it can be told apart.
+     *
+     * @param id - the id of the table
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
     public ArrayList<Player> getPlayers() {
         return players;
     }
 
-    public double getPot() {
+    public long getPot() {
         return pot;
     }
 
-    public void changePot(double amount) {
+    public void changePot(long amount) {
         pot += amount;
     }
 
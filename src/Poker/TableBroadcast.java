@@ -0,0 +1,280 @@
+package Poker;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends what happens at one table to any number of spectators, without anyone outside the
+ * table's own thread touching its Players, cards or pot.
+ *
+ * A GameEngine with a broadcast (see GameEngine.setBroadcast()) publishes after every action.
+ * Each update is encoded once into a read-only buffer that holds a whole TableProtocol
+ * frame, and that same buffer is handed to every subscriber, so a table with hundreds of
+ * watchers costs one encoding per action. A TableServer can write the frame straight to a
+ * socket and a TableClient can read it like any other message.
+ *
+ * There are two kinds of update. A SNAPSHOT has everything a spectator can see (no hole
+ * cards): it is sent when a hand starts and when it ends. A DELTA is sent for every other
+ * action and only has the action, the pot, the bets, the board and the acting seat.
+ * Every update has a sequence number, so a spectator can tell if it missed one.
+ *
+ * Every subscriber has a small queue of its own. A subscriber that lets its queue fill up
+ * either skips ahead (the queue is emptied and it is sent the next snapshot, made once for
+ * every subscriber that needs one) or is dropped, whichever it asked for.
+ *
+ * @author Tyler Newman
+ */
+public class TableBroadcast {
+
+    public static final int DEFAULT_QUEUE = 64;
+
+    private final int tableId;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean snapshotWanted = new AtomicBoolean(false);
+    private final ByteBuffer scratch = ByteBuffer.allocate(TableProtocol.MAX_FRAME);     // only used by the table's thread
+    private long sequence = 0;
+    private long handNumber = 0;
+
+    public TableBroadcast(int tableId) {
+        this.tableId = tableId;
+    }
+
+    /**
+     * Starts sending the table's updates to a new subscriber. Its first update is a snapshot.
+     *
+     * @param dropWhenSlow - true to drop the subscriber if its queue fills up, false to skip it ahead
+     * @param onUpdate - is run (on the table's thread) after updates are added to the queue, may be null
+     * @return - the subscription to poll the updates from
+     */
+    public Subscription subscribe(boolean dropWhenSlow, Runnable onUpdate) {
+        Subscription subscription = new Subscription(DEFAULT_QUEUE, dropWhenSlow, onUpdate);
+        subscriptions.add(subscription);
+        snapshotWanted.set(true);
+        return subscription;
+    }
+
+    /**
+     * Ends the broadcast (ex: the table was closed). Every subscriber can still poll the
+     * updates already in its queue, and then finds its subscription closed.
+     */
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.closed = true;
+            subscription.notifySubscriber();
+        }
+        subscriptions.clear();
+    }
+
+    public int getNumOfSubscribers() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Publishes the state of the table when a hand starts.
+     *
+     * @param engine - the engine that just started the hand
+     */
+    void handStarted(GameEngine engine) {
+        handNumber = engine.getRoundsPlayed();
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        publish(snapshot(engine), true);
+    }
+
+    /**
+     * Publishes an action. If it ended the hand the whole state is published instead.
+     *
+     * @param engine - the engine that took the action
+     * @param seat - the seat that acted
+     * @param action - what they did
+     */
+    void acted(GameEngine engine, int seat, Action action) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        if (engine.isHandOver() || snapshotWanted.get()) {
+            publish(snapshot(engine), true);
+        } else {
+            publish(delta(engine, seat, action), false);
+        }
+    }
+
+    private void publish(ByteBuffer update, boolean isSnapshot) {
+        if (isSnapshot) {
+            snapshotWanted.set(false);
+        }
+        for (Subscription subscription : subscriptions) {
+            if (subscription.waitingForSnapshot && !isSnapshot) {
+                continue;
+            }
+            if (!subscription.offer(update)) {
+                if (subscription.dropWhenSlow) {
+                    subscription.close();
+                    subscription.notifySubscriber();
+                } else {
+                    subscription.skipAhead();
+                    snapshotWanted.set(true);
+                }
+            } else {
+                subscription.waitingForSnapshot = false;
+            }
+        }
+    }
+
+    private ByteBuffer snapshot(GameEngine engine) {
+        Table table = engine.getTable();
+        ArrayList<Player> players = table.getPlayers();
+
+        ByteBuffer buffer = begin(TableProtocol.SNAPSHOT);
+        TableProtocol.putVarLong(buffer, tableId);
+        putCommon(buffer, engine);
+        buffer.put((byte) players.size());
+        for (Player player : players) {
+            putSeat(buffer, player);
+        }
+        int[] winners = engine.isHandOver() ? engine.getWinners() : new int[0];
+        buffer.put((byte) winners.length);
+        for (int winner : winners) {
+            buffer.put((byte) winner);
+        }
+        return end(buffer);
+    }
+
+    private ByteBuffer delta(GameEngine engine, int seat, Action action) {
+        ByteBuffer buffer = begin(TableProtocol.DELTA);
+        putCommon(buffer, engine);
+        buffer.put((byte) seat);
+        buffer.put((byte) action.getType().ordinal());
+        TableProtocol.putVarLong(buffer, action.getAmount());
+        putSeat(buffer, engine.getTable().getPlayer(seat));
+        return end(buffer);
+    }
+
+    private ByteBuffer begin(int type) {
+        scratch.clear();
+        scratch.putShort((short) 0);
+        scratch.put((byte) type);
+        TableProtocol.putVarLong(scratch, sequence++);
+        return scratch;
+    }
+
+    private void putCommon(ByteBuffer buffer, GameEngine engine) {
+        Table table = engine.getTable();
+        TableProtocol.putVarLong(buffer, handNumber);
+        buffer.put((byte) (engine.isHandOver() ? TableProtocol.NO_SEAT : engine.getCurrentPosition()));
+        buffer.put((byte) (engine.getTimeInRound() + 1));
+        TableProtocol.putVarLong(buffer, table.getPot());
+        TableProtocol.putVarLong(buffer, engine.getCurrentHighBet());
+        ArrayList<Card> board = table.getCardsOnTable();
+        buffer.put((byte) board.size());
+        for (Card card : board) {
+            buffer.put((byte) card.getIndex());
+        }
+    }
+
+    private void putSeat(ByteBuffer buffer, Player player) {
+        TableProtocol.putVarLong(buffer, player.getBalance());
+        TableProtocol.putVarLong(buffer, player.getCurrentBet());
+        buffer.put((byte) (player.isFolded() ? TableProtocol.FOLDED : 0));
+    }
+
+    /**
+     * Finishes the frame and copies it out of the scratch buffer into the one buffer every
+     * subscriber shares.
+     */
+    private ByteBuffer end(ByteBuffer buffer) {
+        TableProtocol.endFrame(buffer, 0);
+        buffer.flip();
+        ByteBuffer update = ByteBuffer.allocate(buffer.remaining());
+        update.put(buffer);
+        update.flip();
+        return update.asReadOnlyBuffer();
+    }
+
+    /**
+     * One subscriber's queue of updates. The table's thread adds to it and the subscriber polls it.
+     */
+    public final class Subscription {
+
+        private final ConcurrentLinkedQueue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final int capacity;
+        private final boolean dropWhenSlow;
+        private final Runnable onUpdate;
+        private volatile boolean closed = false;
+        private volatile boolean waitingForSnapshot = true;
+        private volatile long skips = 0;
+
+        Subscription(int capacity, boolean dropWhenSlow, Runnable onUpdate) {
+            this.capacity = capacity;
+            this.dropWhenSlow = dropWhenSlow;
+            this.onUpdate = onUpdate;
+        }
+
+        private boolean offer(ByteBuffer update) {
+            if (size.get() >= capacity) {
+                return false;
+            }
+            queue.add(update);
+            size.incrementAndGet();
+            notifySubscriber();
+            return true;
+        }
+
+        private void notifySubscriber() {
+            if (onUpdate != null) {
+                onUpdate.run();
+            }
+        }
+
+        private void skipAhead() {
+            while (queue.poll() != null) {
+                size.decrementAndGet();
+            }
+            waitingForSnapshot = true;
+            skips++;
+        }
+
+        /**
+         * Gets the next update, a whole TableProtocol frame (SNAPSHOT or DELTA).
+         * The buffer is the subscriber's own view of the shared bytes, so it can be read or written out.
+         *
+         * @return - the next update, or null if there is none yet
+         */
+        public ByteBuffer poll() {
+            ByteBuffer update = queue.poll();
+            if (update == null) {
+                return null;
+            }
+            size.decrementAndGet();
+            return update.duplicate();
+        }
+
+        /**
+         * Gets the number of times the subscriber fell behind and was skipped ahead.
+         *
+         * @return - the number of skips
+         */
+        public long getSkips() {
+            return skips;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Stops the updates. Is also how a subscriber that was too slow gets dropped.
+         */
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            queue.clear();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package Poker;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A client for a TableServer that sits down at one seat and plays it with a Strategy, or
+ * spectates a table (see watch()). Reads the server's messages with a blocking SocketChannel
+ * and keeps the last state of the table it was sent, so it can be used for bots, spectators
+ * or to play against a server on localhost.
+ *
+ * @author Tyler Newman
+ */
+public class TableClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(TableProtocol.MAX_FRAME + TableProtocol.HEADER_LENGTH);
+    private final ByteBuffer out = ByteBuffer.allocate(64);
+
+    private int tableId = -1;
+    private int seat = -1;
+    private int numOfSeats = 0;
+    private long handNumber;
+    private int turn = TableProtocol.NO_SEAT;
+    private int timeInRound;
+    private long pot;
+    private long currentHighBet;
+    private long holeMask;
+    private long boardMask;
+    private long[] balances = new long[0];
+    private long[] bets = new long[0];
+    private int[] flags = new int[0];
+    private int[] winners = new int[0];
+    private int lastRejection = 0;
+    private long sequence = -1;         // of the last broadcast update
+    private long missedUpdates = 0;
+
+    /**
+     * Connects to a server.
+     *
+     * @param host - the host of the server
+     * @param port - the port of the server
+     */
+    public TableClient(String host, int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        in.flip();      // nothing read yet
+    }
+
+    /**
+     * Asks to sit down and waits until the server has given this client a seat.
+     *
+     * @param name - the name to play as (at most 9 characters)
+     * @return - the seat
+     */
+    public int join(String name) throws IOException {
+        out.clear();
+        TableProtocol.putJoin(out, name);
+        write();
+        while (seat < 0) {
+            if (readMessage() == TableProtocol.REJECTED) {
+                throw new IOException("The server would not seat " + name + " (reason " + lastRejection + ")");
+            }
+        }
+        return seat;
+    }
+
+    /**
+     * Asks to spectate a table. The updates then come in as SNAPSHOT and DELTA messages.
+     *
+     * @param tableId - the table to watch
+     */
+    public void watch(int tableId) throws IOException {
+        out.clear();
+        TableProtocol.putWatch(out, tableId);
+        write();
+        this.tableId = tableId;
+    }
+
+    /**
+     * Sends an action for this client's seat.
+     *
+     * @param action - the action to take
+     */
+    public void send(Action action) throws IOException {
+        out.clear();
+        TableProtocol.putAction(out, action);
+        write();
+    }
+
+    private void write() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    /**
+     * Plays the seat with a strategy until the given number of hands are over or the server
+     * closes the table. An action the server rejects is replaced with a call.
+     *
+     * @param strategy - the strategy that decides every action
+     * @param hands - the most hands to play
+     * @return - the number of hands that were played
+     */
+    public long play(Strategy strategy, long hands) throws IOException {
+        long played = 0;
+        try {
+            while (played < hands) {
+                int type = readMessage();
+                if (type == TableProtocol.HAND_OVER) {
+                    played++;
+                } else if (type == TableProtocol.STATE && isMyTurn()) {
+                    Action action = strategy.decide(getView());
+                    send(action == null ? Action.call() : action);
+                } else if (type == TableProtocol.REJECTED && lastRejection == TableProtocol.CANNOT_AFFORD) {
+                    send(Action.call());
+                }
+            }
+        } catch (EOFException e) {
+            // the server closed the table
+        }
+        return played;
+    }
+
+    /**
+     * Reads the next message from the server and keeps what it says.
+     *
+     * @return - the type of the message
+     */
+    public int readMessage() throws IOException {
+        int length;
+        while ((length = TableProtocol.frameLength(in)) < 0) {
+            in.compact();
+            int read = channel.read(in);
+            in.flip();
+            if (read < 0) {
+                throw new EOFException("The server closed the connection");
+            }
+        }
+
+        int end = in.position() + length;
+        in.position(in.position() + TableProtocol.HEADER_LENGTH);
+        int type = in.get() & 0xFF;
+        switch (type) {
+            case TableProtocol.SEATED:
+                tableId = (int) TableProtocol.getVarLong(in);
+                seat = in.get() & 0xFF;
+                numOfSeats = in.get() & 0xFF;
+                break;
+            case TableProtocol.STATE:
+                readState();
+                break;
+            case TableProtocol.HAND_OVER:
+                pot = TableProtocol.getVarLong(in);
+                winners = new int[in.get() & 0xFF];
+                for (int i=0; i<winners.length; i++) {
+                    winners[i] = in.get() & 0xFF;
+                }
+                break;
+            case TableProtocol.REJECTED:
+                lastRejection = in.get() & 0xFF;
+                break;
+            case TableProtocol.SNAPSHOT:
+                readSequence();
+                tableId = (int) TableProtocol.getVarLong(in);
+                readCommon();
+                int seats = in.get() & 0xFF;
+                ensureSeats(seats);
+                for (int i=0; i<seats; i++) {
+                    readSeat(i);
+                }
+                winners = new int[in.get() & 0xFF];
+                for (int i=0; i<winners.length; i++) {
+                    winners[i] = in.get() & 0xFF;
+                }
+                break;
+            case TableProtocol.DELTA:
+                readSequence();
+                readCommon();
+                int actor = in.get() & 0xFF;
+                in.get();       // the action type
+                TableProtocol.getVarLong(in);   // the amount of a raise
+                readSeat(actor);
+                break;
+            default:
+                break;      // a message this client does not know about is skipped
+        }
+        in.position(end);
+        return type;
+    }
+
+    private void readState() {
+        holeMask = 0L;
+        for (int i=0; i<2; i++) {
+            int card = in.get() & 0xFF;
+            if (card != TableProtocol.NO_CARD) {
+                holeMask |= 1L << card;
+            }
+        }
+        readCommon();
+        int seats = in.get() & 0xFF;
+        ensureSeats(seats);
+        for (int i=0; i<seats; i++) {
+            readSeat(i);
+        }
+    }
+
+    /**
+     * Reads the part that a STATE, SNAPSHOT and DELTA have in common.
+     */
+    private void readCommon() {
+        handNumber = TableProtocol.getVarLong(in);
+        turn = in.get() & 0xFF;
+        timeInRound = (in.get() & 0xFF) - 1;
+        pot = TableProtocol.getVarLong(in);
+        currentHighBet = TableProtocol.getVarLong(in);
+        boardMask = 0L;
+        int boardSize = in.get() & 0xFF;
+        for (int i=0; i<boardSize; i++) {
+            boardMask |= 1L << (in.get() & 0xFF);
+        }
+    }
+
+    private void readSeat(int seat) {
+        balances[seat] = TableProtocol.getVarLong(in);
+        bets[seat] = TableProtocol.getVarLong(in);
+        flags[seat] = in.get() & 0xFF;
+    }
+
+    private void ensureSeats(int seats) {
+        if (balances.length != seats) {
+            balances = new long[seats];
+            bets = new long[seats];
+            flags = new int[seats];
+        }
+    }
+
+    private void readSequence() {
+        long next = TableProtocol.getVarLong(in);
+        if (sequence >= 0 && next > sequence + 1) {
+            missedUpdates += next - sequence - 1;
+        }
+        sequence = next;
+    }
+
+    public boolean isMyTurn() {
+        return seat >= 0 && turn == seat;
+    }
+
+    /**
+     * Gets what this client's seat can see of the hand, the same view a Strategy gets from
+     * a GameEngine.
+     *
+     * @return - the view from the last state the server sent
+     */
+    public GameView getView() {
+        int active = 0;
+        for (int flag : flags) {
+            if ((flag & TableProtocol.FOLDED) == 0) {
+                active++;
+            }
+        }
+        int strength = holeMask == 0 ? HandEvaluator.NO_HAND : HandEvaluator.evaluate(holeMask | boardMask);
+        long toCall = Math.max(0, currentHighBet - bets[seat]);
+        return new GameView(tableId, seat, numOfSeats, active, timeInRound, holeMask, boardMask, strength,
+                pot, toCall, currentHighBet, bets[seat], balances[seat]);
+    }
+
+    /**
+     * Gets how many broadcast updates a spectator was skipped past (it was too slow to keep up).
+     *
+     * @return - the number of updates missed
+     */
+    public long getMissedUpdates() {
+        return missedUpdates;
+    }
+
+    public long getPot() {
+        return pot;
+    }
+
+    /**
+     * Gets the balance of a seat, from the last state or update that was sent.
+     *
+     * @param seat - the position of the seat
+     * @return - the seat's balance
+     */
+    public long getBalance(int seat) {
+        return balances[seat];
+    }
+
+    public int getTableId() {
+        return tableId;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public long getHandNumber() {
+        return handNumber;
+    }
+
+    public long getBalance() {
+        return seat < 0 || balances.length == 0 ? 0 : balances[seat];
+    }
+
+    /**
+     * Gets the winning seat(s) of the last hand that was over.
+     *
+     * @return - the winning seats
+     */
+    public int[] getWinners() {
+        return winners.clone();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
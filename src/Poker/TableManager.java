@@ -0,0 +1,561 @@
+package Poker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hosts many independent tables at once and plays hands at all of them without any UI.
+ *
+ * The tables are split into shards and every shard is played by its own carrier thread,
+ * which moves all of its tables forward one decision at a time. The players are bots (see
+ * Strategy): on each pass the shard gathers a GameView from every table that is waiting on
+ * the same Strategy and asks it for all of their actions in one decideAll() call, so a bot
+ * sitting at thousands of tables is called once per pass instead of once per decision.
+ *
+ * A table only ever belongs to one shard, so its Table, Deck, HandChecker and GameEngine are
+ * only touched by one thread and need no locking. Every table shuffles with its own ShuffleSource split from the manager's
+ * master source, and nothing is written to the stats file (that is only done by the Controller).
+ *
+ * The only state shared between the shards is the count of hands played, which is kept in a
+ * LongAdder so the carriers never contend on it.
+ *
+ * Every shard can save its own tables to a checkpoint file as it plays (see checkpointTo()),
+ * so the manager never has to stop for a checkpoint.
+ *
+ * A table that throws is taken out of the rotation (see getFailure()) and the rest keep playing.
+ * A table where only one player has chips left is finished and stops playing hands.
+ * An action that cannot be taken (ex: a raise the player cannot afford) is played as a call.
+ *
+ * @author Tyler Newman
+ */
+public class TableManager {
+
+    private final ShuffleSource master;
+    private final Shard[] shards;
+    private final ArrayList<ManagedTable> tables = new ArrayList<>();
+    private final LongAdder handsPlayed = new LongAdder();
+
+    private HandHistoryLog handHistory = null;
+    private Thread[] carriers;
+    private volatile boolean running = false;
+    private Path checkpointDirectory = null;        // where the shards save their tables, if anywhere
+    private long checkpointIntervalNanos;
+    private volatile IOException checkpointFailure = null;
+
+    /**
+     * Creates a TableManager with one shard for each processor and an unseeded master stream.
+     */
+    public TableManager() {
+        this(Runtime.getRuntime().availableProcessors(), ShuffleSource.splittable());
+    }
+
+    /**
+     * Creates a TableManager whose tables all shuffle with streams split from one seed,
+     * so the same seed and the same tables always deal the same cards.
+     *
+     * @param numOfShards - the number of carrier threads the tables are spread over
+     * @param seed - the master seed
+     */
+    public TableManager(int numOfShards, long seed) {
+        this(numOfShards, ShuffleSource.seeded(seed));
+    }
+
+    public TableManager(int numOfShards, ShuffleSource master) {
+        if (numOfShards < 1) {
+            throw new IllegalArgumentException("There must be at least one shard");
+        }
+        this.master = master;
+        this.shards = new Shard[numOfShards];
+        for (int i=0; i<numOfShards; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * Sits a new table down with the given players, who all call every time.
+     *
+     * @param names - the names of the players at the table
+     * @return - the id of the new table
+     */
+    public int addTable(ArrayList<String> names) {
+        return addTable(names, Strategy.ALWAYS_CALL);
+    }
+
+    /**
+     * Sits a new table down with the given players, who are all played by one strategy.
+     *
+     * @param names - the names of the players at the table
+     * @param strategy - the strategy playing every seat
+     * @return - the id of the new table
+     */
+    public int addTable(ArrayList<String> names, Strategy strategy) {
+        Strategy[] strategies = new Strategy[names.size()];
+        for (int i=0; i<strategies.length; i++) {
+            strategies[i] = strategy;
+        }
+        return addTable(names, strategies);
+    }
+
+    /**
+     * Sits a new table down with the given players. Tables are dealt out to the shards in turn.
+     * Tables can only be added while the manager is not running.
+     *
+     * @param names - the names of the players at the table
+     * @param strategies - the strategy playing each seat
+     * @return - the id of the new table
+     */
+    public synchronized int addTable(ArrayList<String> names, Strategy[] strategies) {
+        if (running) {
+            throw new IllegalStateException("Tables cannot be added while the manager is running");
+        }
+        if (names.size() < 2) {
+            throw new IllegalArgumentException("A table needs at least two players");
+        }
+        if (strategies.length != names.size()) {
+            throw new IllegalArgumentException("Every seat needs a strategy");
+        }
+
+        int id = tables.size();
+        Table table = new Table(names, master.split());
+        table.setId(id);
+        ManagedTable managed = new ManagedTable(id, new GameEngine(table), strategies.clone());
+        if (handHistory != null) {
+            managed.engine.setRecorder(new HandRecorder(id, handHistory));
+        }
+        tables.add(managed);
+        shards[id % shards.length].tables.add(managed);
+        return id;
+    }
+
+    /**
+     * Has every hand at every table (including tables added later) recorded to a hand history log.
+     *
+     * @param log - the log the hands are appended to
+     */
+    public synchronized void recordTo(HandHistoryLog log) {
+        if (running) {
+            throw new IllegalStateException("Recording cannot be changed while the manager is running");
+        }
+        handHistory = log;
+        for (ManagedTable managed : tables) {
+            managed.engine.setRecorder(new HandRecorder(managed.id, log));
+        }
+    }
+
+    /**
+     * Starts every shard playing hands until stop() is called.
+     */
+    public void start() {
+        start(Long.MAX_VALUE);
+    }
+
+    /**
+     * Plays the given number of hands at every table and waits for all of them to finish.
+     *
+     * @param handsPerTable - the number of hands each table plays
+     */
+    public void playHands(long handsPerTable) {
+        start(handsPerTable);
+        join();
+    }
+
+    private synchronized void start(long handsPerTable) {
+        if (running) {
+            throw new IllegalStateException("The manager is already running");
+        }
+        running = true;
+
+        for (ManagedTable managed : tables) {
+            managed.handsAtStart = managed.handsPlayed;     // every run plays its own number of hands
+        }
+        carriers = new Thread[shards.length];
+        for (int i=0; i<shards.length; i++) {
+            shards[i].handsToPlay = handsPerTable;
+            carriers[i] = new Thread(shards[i], "table-shard-" + i);
+            carriers[i].setDaemon(true);
+            carriers[i].start();
+        }
+    }
+
+    /**
+     * Stops every shard after its current pass and waits for them.
+     * Hands that are still being played carry on from where they were at the next start().
+     */
+    public void stop() {
+        running = false;
+        join();
+    }
+
+    private void join() {
+        if (carriers == null) {
+            running = false;    // the manager was never started
+            return;
+        }
+        for (Thread carrier : carriers) {
+            try {
+                carrier.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        running = false;
+    }
+
+    /**
+     * Has every shard save its own tables (see TableCheckpoint) to a file of its own in the
+     * given directory while the manager runs, so a crash loses at most one interval of play.
+     * A shard saves at the end of a pass, when no action is half taken (hands being played
+     * are saved where they are and carry on from there when restored), and once more when a
+     * run ends. Tables that have failed are left out. Can only be set while the manager is not running.
+     *
+     * @param directory - the directory the shards' files go in (tables-shard-0.ckpt, ...)
+     * @param intervalMillis - the time between a shard's saves
+     */
+    public synchronized void checkpointTo(Path directory, long intervalMillis) {
+        if (running) {
+            throw new IllegalStateException("Checkpoints cannot be changed while the manager is running");
+        }
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("The checkpoint interval must be positive");
+        }
+        checkpointDirectory = directory;
+        checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    /**
+     * Gets the last error a shard had saving its tables (it keeps playing and tries again at
+     * its next checkpoint).
+     *
+     * @return - the error, or null if every checkpoint so far was saved
+     */
+    public IOException getCheckpointFailure() {
+        return checkpointFailure;
+    }
+
+    /**
+     * Saves every table to one file. Can only be done while the manager is not running
+     * (see checkpointTo() for saving while it runs).
+     *
+     * @param file - the file to write, replaced if it is there
+     */
+    public synchronized void checkpoint(Path file) throws IOException {
+        if (running) {
+            throw new IllegalStateException("Tables cannot be saved while the manager is running, use checkpointTo()");
+        }
+        writeCheckpoint(tables, file);
+    }
+
+    /**
+     * Writes tables to a file: an int number of tables, then for each table an int id, an int
+     * length and its image. The file is written under a temporary name and then renamed over
+     * the old one, so a crash while it is being written never loses the last good checkpoint.
+     */
+    private static void writeCheckpoint(ArrayList<ManagedTable> toSave, Path file) throws IOException {
+        int size = 4;
+        for (ManagedTable managed : toSave) {
+            size += 8 + TableCheckpoint.maxSize(managed.engine.getTable().getPlayers().size());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(0);
+        int saved = 0;
+        for (ManagedTable managed : toSave) {
+            if (managed.failure != null) {
+                continue;
+            }
+            buffer.putInt(managed.id);
+            int start = buffer.position();
+            buffer.putInt(0);
+            TableCheckpoint.save(managed.engine, buffer);
+            buffer.putInt(start, buffer.position() - start - 4);
+            saved++;
+        }
+        buffer.putInt(0, saved);
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Puts the tables in a file written by checkpoint() (or by a shard, see checkpointTo())
+     * back, by their ids. The tables must have the same number of seats as the ones that were
+     * saved. Hands that were being played carry on from where they were at the next start().
+     * A table that had failed is put back in the rotation.
+     *
+     * @param file - the file to read
+     */
+    public synchronized void restore(Path file) throws IOException {
+        if (running) {
+            throw new IllegalStateException("Tables cannot be restored while the manager is running");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        int numOfTables = buffer.getInt();
+        for (int i=0; i<numOfTables; i++) {
+            int id = buffer.getInt();
+            int length = buffer.getInt();
+            if (id < 0 || id >= tables.size()) {
+                throw new IllegalArgumentException("The checkpoint has table " + id + ", the manager has " + tables.size() + " tables");
+            }
+            ByteBuffer image = buffer.slice();
+            image.limit(length);
+            ManagedTable managed = tables.get(id);
+            TableCheckpoint.restore(managed.engine, image);
+            buffer.position(buffer.position() + length);
+            managed.failure = null;
+        }
+    }
+
+    /**
+     * Puts back every table saved by the shards in a checkpoint directory (see checkpointTo()).
+     *
+     * @param directory - the directory the shards saved to
+     * @return - the number of files that were restored
+     */
+    public synchronized int restoreCheckpoints(Path directory) throws IOException {
+        int restored = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "tables-shard-*.ckpt")) {
+            for (Path file : files) {
+                restore(file);
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Gets the number of hands finished at every table together.
+     *
+     * @return - the total number of hands played
+     */
+    public long getHandsPlayed() {
+        return handsPlayed.sum();
+    }
+
+    public int getNumOfTables() {
+        return tables.size();
+    }
+
+    public int getNumOfShards() {
+        return shards.length;
+    }
+
+    /**
+     * Gets the engine playing at a table. Its state should only be read while the manager is stopped.
+     *
+     * @param id - the id of the table
+     * @return - the table's GameEngine
+     */
+    public GameEngine getEngine(int id) {
+        return tables.get(id).engine;
+    }
+
+    /**
+     * Gets the exception that took a table out of the rotation.
+     *
+     * @param id - the id of the table
+     * @return - the exception, or null if the table is still playing
+     */
+    public Throwable getFailure(int id) {
+        return tables.get(id).failure;
+    }
+
+    /**
+     * A table and the engine playing at it, together with how far it has gotten.
+     */
+    static class ManagedTable {
+
+        final int id;
+        final GameEngine engine;
+        final Strategy[] strategies;        // the strategy playing each seat
+        long handsPlayed = 0;               // only touched by the table's own shard
+        long handsAtStart = 0;              // handsPlayed when the current run started
+        volatile Throwable failure = null;
+
+        ManagedTable(int id, GameEngine engine, Strategy[] strategies) {
+            this.id = id;
+            this.engine = engine;
+            this.strategies = strategies;
+        }
+    }
+
+    /**
+     * The tables waiting on one Strategy during a pass, with their views and the actions that come back.
+     * Is reused from pass to pass so that a shard does not allocate a new batch for every decision.
+     */
+    private static class Batch {
+
+        private ManagedTable[] tables = new ManagedTable[16];
+        private GameView[] views = new GameView[16];
+        private Action[] actions = new Action[16];
+        private int count = 0;
+
+        void add(ManagedTable managed, GameView view) {
+            if (count == tables.length) {
+                int length = count * 2;
+                tables = Arrays.copyOf(tables, length);
+                views = Arrays.copyOf(views, length);
+                actions = Arrays.copyOf(actions, length);
+            }
+            tables[count] = managed;
+            views[count] = view;
+            count++;
+        }
+
+        void clear() {
+            for (int i=0; i<count; i++) {
+                tables[i] = null;
+                views[i] = null;
+                actions[i] = null;
+            }
+            count = 0;
+        }
+    }
+
+    /**
+     * The tables played by one carrier thread.
+     */
+    private class Shard implements Runnable {
+
+        private final ArrayList<ManagedTable> tables = new ArrayList<>();
+        private final IdentityHashMap<Strategy, Batch> batches = new IdentityHashMap<>();
+        private final int index;
+        private long handsToPlay;
+
+        Shard(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            long nextCheckpoint = System.nanoTime() + checkpointIntervalNanos;
+            while (running && collectDecisions()) {
+                for (Map.Entry<Strategy, Batch> entry : batches.entrySet()) {
+                    Batch batch = entry.getValue();
+                    if (batch.count > 0) {
+                        decide(entry.getKey(), batch);
+                        batch.clear();
+                    }
+                }
+                if (checkpointDirectory != null && System.nanoTime() - nextCheckpoint >= 0) {
+                    saveTables();
+                    nextCheckpoint = System.nanoTime() + checkpointIntervalNanos;
+                }
+            }
+            if (checkpointDirectory != null) {
+                saveTables();   // where the run left them
+            }
+        }
+
+        private void saveTables() {
+            try {
+                writeCheckpoint(tables, checkpointDirectory.resolve("tables-shard-" + index + ".ckpt"));
+            } catch (IOException e) {
+                checkpointFailure = e;      // keep playing, the next checkpoint may work
+            }
+        }
+
+        /**
+         * Starts a hand at every table that is between hands and still has hands to play,
+         * then adds the view of every table that is waiting on a player to its strategy's batch.
+         *
+         * @return - a boolean indicating if any table is waiting on a decision
+         */
+        private boolean collectDecisions() {
+            boolean waiting = false;
+            for (int i=0; i<tables.size(); i++) {
+                ManagedTable managed = tables.get(i);
+                GameEngine engine = managed.engine;
+                if (managed.failure != null) {
+                    continue;
+                }
+
+                try {
+                    if (engine.isHandOver()) {
+                        if (managed.handsPlayed - managed.handsAtStart >= handsToPlay || engine.isGameOver()) {
+                            continue;
+                        }
+                        engine.startHand();
+                        if (engine.isHandOver()) {
+                            // the blinds put everyone all-in, so the hand was played out straight away
+                            managed.handsPlayed++;
+                            handsPlayed.increment();
+                            continue;
+                        }
+                    }
+
+                    Strategy strategy = managed.strategies[engine.getCurrentPosition()];
+                    Batch batch = batches.get(strategy);
+                    if (batch == null) {
+                        batch = new Batch();
+                        batches.put(strategy, batch);
+                    }
+                    batch.add(managed, engine.getView(managed.id));
+                    waiting = true;
+                } catch (RuntimeException e) {
+                    managed.failure = e;    // only this table stops, the rest of the shard keeps going
+                }
+            }
+            return waiting;
+        }
+
+        /**
+         * Asks a strategy for every action in its batch at once and plays them out.
+         */
+        private void decide(Strategy strategy, Batch batch) {
+            try {
+                strategy.decideAll(batch.views, batch.count, batch.actions);
+            } catch (RuntimeException e) {
+                for (int i=0; i<batch.count; i++) {
+                    batch.tables[i].failure = e;
+                }
+                return;
+            }
+
+            for (int i=0; i<batch.count; i++) {
+                ManagedTable managed = batch.tables[i];
+                try {
+                    Action action = batch.actions[i];
+                    if (action == null || !managed.engine.apply(action)) {
+                        managed.engine.call();
+                    }
+
+                    if (managed.engine.isHandOver()) {
+                        managed.handsPlayed++;
+                        handsPlayed.increment();
+                    }
+                } catch (RuntimeException e) {
+                    managed.failure = e;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package Poker;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary protocol spoken between a TableServer and its clients (see TableClient).
+ *
+ * Every message is a frame: a 2 byte length (big-endian, not counting itself), a 1 byte
+ * message type and the payload. Amounts and counts are variable-length integers (7 bits per
+ * byte, low bits first, like the hand history) and cards are card indexes (see Card.getIndex()).
+ *
+ * Client to server:
+ *    JOIN      byte name length, the name in UTF-8 (at most 9 characters, see Player)
+ *    ACTION    byte Action.Type.ordinal(), then a varint amount for a RAISE
+ *    WATCH     varint table id (to spectate a table instead of sitting down)
+ *
+ * Server to client:
+ *    SEATED    varint table id, byte seat, byte number of seats
+ *    STATE     byte hole card, byte hole card (NO_CARD if none), varint hand number,
+ *              byte seat whose turn it is (NO_SEAT once the hand is over), byte time in round + 1,
+ *              varint pot, varint highest bet, byte number of board cards, one byte per card,
+ *              byte number of seats, then for every seat a varint balance, a varint bet and
+ *              a byte of flags (FOLDED, GONE)
+ *    HAND_OVER varint pot, byte number of winners, one byte per winning seat
+ *    REJECTED  byte reason (NOT_YOUR_TURN, CANNOT_AFFORD, BAD_MESSAGE, BAD_NAME, NO_TABLE)
+ *
+ * Spectators are sent the updates of a TableBroadcast, which are frames too:
+ *    SNAPSHOT  varint sequence, varint table id, the common part, byte number of seats,
+ *              a seat (varint balance, varint bet, byte flags) for every seat,
+ *              byte number of winners (0 while the hand is being played), one byte per winner
+ *    DELTA     varint sequence, the common part, byte seat that acted, byte Action.Type.ordinal(),
+ *              varint amount, then the seat that acted
+ * where the common part is a varint hand number, byte seat whose turn it is, byte time in
+ * round + 1, varint pot, varint highest bet, byte number of board cards and the board cards.
+ *
+ * Only the two hole cards at the front of a STATE are different for each seat, so the
+ * server encodes the rest once and sends the same bytes to every seat.
+ *
+ * @author Tyler Newman
+ */
+public final class TableProtocol {
+
+    public static final int JOIN = 1;
+    public static final int ACTION = 2;
+    public static final int WATCH = 3;
+
+    public static final int SEATED = 16;
+    public static final int STATE = 17;
+    public static final int HAND_OVER = 18;
+    public static final int REJECTED = 19;
+    public static final int SNAPSHOT = 20;
+    public static final int DELTA = 21;
+
+    public static final int NOT_YOUR_TURN = 1;
+    public static final int CANNOT_AFFORD = 2;
+    public static final int BAD_MESSAGE = 3;
+    public static final int BAD_NAME = 4;
+    public static final int NO_TABLE = 5;
+
+    public static final int FOLDED = 1;
+    public static final int GONE = 2;       // the seat's connection was closed, it folds every turn
+
+    public static final int NO_CARD = 0xFF;
+    public static final int NO_SEAT = 0xFF;
+    public static final int HEADER_LENGTH = 2;
+    public static final int MAX_FRAME = 0xFFFF;
+
+    private TableProtocol() {
+    }
+
+    /**
+     * Gets the length of the first whole frame in a buffer (in read mode), header included.
+     *
+     * @param buffer - the bytes read so far
+     * @return - the length of the frame, or -1 if the whole frame has not been read yet
+     */
+    public static int frameLength(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return -1;
+        }
+        int length = HEADER_LENGTH + (buffer.getShort(buffer.position()) & 0xFFFF);
+        return buffer.remaining() < length ? -1 : length;
+    }
+
+    /**
+     * Writes the length of a frame into its header, once the rest of the frame has been put.
+     *
+     * @param buffer - the buffer the frame is being put in
+     * @param start - the position the frame starts at
+     */
+    public static void endFrame(ByteBuffer buffer, int start) {
+        int length = buffer.position() - start - HEADER_LENGTH;
+        if (length > MAX_FRAME) {
+            throw new IllegalArgumentException("A frame cannot be longer than " + MAX_FRAME + " bytes");
+        }
+        buffer.putShort(start, (short) length);
+    }
+
+    public static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift=0; shift<64; shift+=7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt message: variable-length integer is too long");
+    }
+
+    /**
+     * Puts a whole JOIN frame.
+     *
+     * @param buffer - the buffer to put it in
+     * @param name - the name to sit down as
+     */
+    public static void putJoin(ByteBuffer buffer, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int start = buffer.position();
+        buffer.putShort((short) 0);
+        buffer.put((byte) JOIN);
+        buffer.put((byte) bytes.length);
+        buffer.put(bytes);
+        endFrame(buffer, start);
+    }
+
+    /**
+     * Puts a whole WATCH frame.
+     *
+     * @param buffer - the buffer to put it in
+     * @param tableId - the table to spectate
+     */
+    public static void putWatch(ByteBuffer buffer, int tableId) {
+        int start = buffer.position();
+        buffer.putShort((short) 0);
+        buffer.put((byte) WATCH);
+        putVarLong(buffer, tableId);
+        endFrame(buffer, start);
+    }
+
+    /**
+     * Puts a whole ACTION frame.
+     *
+     * @param buffer - the buffer to put it in
+     * @param action - the action to take
+     */
+    public static void putAction(ByteBuffer buffer, Action action) {
+        int start = buffer.position();
+        buffer.putShort((short) 0);
+        buffer.put((byte) ACTION);
+        buffer.put((byte) action.getType().ordinal());
+        if (action.getType() == Action.Type.RAISE) {
+            putVarLong(buffer, action.getAmount());
+        }
+        endFrame(buffer, start);
+    }
+}
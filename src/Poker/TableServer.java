@@ -0,0 +1,721 @@
+package Poker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays tables over TCP. Every connection is one seat: a client sends JOIN with a name,
+ * is sat down at the next table with an open seat, and once every seat of the table is
+ * taken hands are dealt one after the other. Each client is sent the state of the table
+ * after every action and sends back its own actions (see TableProtocol and TableClient).
+ *
+ * The server runs a few event loops, each a thread with its own NIO Selector. The first
+ * loop accepts connections and hands them out to the loops in turn. A connection's table
+ * is made up of connections of the same loop, so everything about a table is only ever
+ * touched by one thread and nothing is locked. An action is read, played on the GameEngine
+ * and the new state is written back in the same pass of the loop; the state is encoded
+ * once for the whole table and only the hole cards differ from seat to seat. What a loop
+ * writes during a pass is flushed once at the end of it, and a client that cannot keep up
+ * has the rest written as its socket allows.
+ *
+ * A seat whose connection is closed folds every time it is their turn. A table is closed
+ * (and its connections with it) once fewer than two of its seats have chips or are connected.
+ *
+ * A client can send WATCH instead of JOIN to spectate a table. Every table has a
+ * TableBroadcast, and the updates it encodes once are copied as they are into every
+ * spectator's socket buffer by the spectator's own loop. A spectator that falls behind is
+ * skipped ahead to the next snapshot, and one whose socket is backed up is dropped.
+ *
+ * @author Tyler Newman
+ */
+public class TableServer implements Closeable {
+
+    private static final int MAX_SPECTATOR_BACKLOG = 256 * 1024;    // bytes waiting for a spectator's socket
+
+    private final int seatsPerTable;
+    private final ShuffleSource master;
+    private final ServerSocketChannel server;
+    private final EventLoop[] loops;
+    private final AtomicInteger nextTableId = new AtomicInteger();
+    private final LongAdder actionsHandled = new LongAdder();
+    private final LongAdder handsPlayed = new LongAdder();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, TableBroadcast> broadcasts = new ConcurrentHashMap<>();
+    private Thread[] threads;
+    private volatile boolean running = false;
+
+    /**
+     * Creates a server on a free port of localhost, with one event loop for each processor.
+     *
+     * @param seatsPerTable - the number of seats at every table
+     * @return - the server, not started yet (see getPort())
+     */
+    public static TableServer onLocalhost(int seatsPerTable) throws IOException {
+        return new TableServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), seatsPerTable,
+                Runtime.getRuntime().availableProcessors(), ShuffleSource.splittable());
+    }
+
+    /**
+     * Creates a server bound to the given address.
+     *
+     * @param address - the address to listen on (port 0 for any free port)
+     * @param seatsPerTable - the number of seats at every table
+     * @param numOfLoops - the number of event loop threads
+     * @param master - the source every table's shuffle is split from
+     */
+    public TableServer(InetSocketAddress address, int seatsPerTable, int numOfLoops, ShuffleSource master)
+            throws IOException {
+        if (seatsPerTable < 2 || seatsPerTable > HandRecorder.MAX_SEATS) {
+            throw new IllegalArgumentException("A table must have between 2 and " + HandRecorder.MAX_SEATS + " seats");
+        }
+        if (numOfLoops < 1) {
+            throw new IllegalArgumentException("There must be at least one event loop");
+        }
+        this.seatsPerTable = seatsPerTable;
+        this.master = master;
+        this.server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+        server.configureBlocking(false);
+
+        this.loops = new EventLoop[numOfLoops];
+        for (int i=0; i<numOfLoops; i++) {
+            loops[i] = new EventLoop();
+        }
+        server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Starts every event loop.
+     */
+    public synchronized void start() {
+        if (threads != null) {
+            throw new IllegalStateException("The server has already been started");
+        }
+        running = true;
+        threads = new Thread[loops.length];
+        for (int i=0; i<loops.length; i++) {
+            threads[i] = new Thread(loops[i], "table-server-" + i);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * Stops the event loops and closes every connection.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        running = false;
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+        if (threads != null) {
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        server.close();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public int getNumOfConnections() {
+        return connections.get();
+    }
+
+    public long getActionsHandled() {
+        return actionsHandled.sum();
+    }
+
+    public long getHandsPlayed() {
+        return handsPlayed.sum();
+    }
+
+    private ShuffleSource splitShuffleSource() {
+        synchronized (master) {     // a split source is only for one thread, but the loops all split the master
+            return master.split();
+        }
+    }
+
+    /**
+     * One event loop thread, with its selector and the connections and tables it owns.
+     */
+    private class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private final ArrayList<Connection> dirty = new ArrayList<>();     // connections written to during this pass
+        private final ConcurrentLinkedQueue<Connection> watching = new ConcurrentLinkedQueue<>();     // spectators with updates
+        private Thread thread;
+        private final ByteBuffer shared = ByteBuffer.allocate(TableProtocol.MAX_FRAME);
+        private int nextLoop = 0;
+        private ServerTable filling = null;    // the table new players are sat down at
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            try {
+                while (running) {
+                    selector.select();
+                    registerAccepted();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    }
+
+                    Connection spectator;
+                    while ((spectator = watching.poll()) != null) {
+                        spectator.copyUpdates();
+                    }
+
+                    for (int i=0; i<dirty.size(); i++) {
+                        dirty.get(i).flush();
+                    }
+                    dirty.clear();
+                }
+            } catch (IOException e) {
+                System.err.println("Table server loop stopped: " + e);
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof Connection) {
+                        ((Connection) key.attachment()).close();
+                    }
+                }
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close selector...");
+                }
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = acceptNext()) != null) {
+                EventLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                loop.accepted.add(channel);
+                if (loop != this) {
+                    loop.selector.wakeup();
+                }
+            }
+            registerAccepted();
+        }
+
+        /**
+         * Accepts the next waiting connection. A connection that cannot be accepted (ex: the
+         * process is out of file handles) is left for the next pass so the loop keeps running.
+         */
+        private SocketChannel acceptNext() {
+            try {
+                SocketChannel channel = server.accept();
+                if (channel != null) {
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                }
+                return channel;
+            } catch (IOException e) {
+                System.err.println("Could not accept connection: " + e);
+                return null;
+            }
+        }
+
+        private void registerAccepted() throws IOException {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                Connection connection = new Connection(this, channel);
+                try {
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    connections.incrementAndGet();
+                } catch (IOException e) {
+                    channel.close();    // the client already hung up
+                }
+            }
+        }
+
+        /**
+         * Sits a connection down at the table being filled, and starts the table once it is full.
+         */
+        void join(Connection connection) {
+            if (filling == null) {
+                filling = new ServerTable(nextTableId.getAndIncrement());
+            }
+            ServerTable table = filling;
+            table.add(connection);
+            if (table.isFull()) {
+                filling = null;
+                table.start();
+            }
+        }
+    }
+
+    /**
+     * One seat's connection. Is only touched by its loop.
+     */
+    private class Connection {
+
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(64);
+        private ByteBuffer out = ByteBuffer.allocate(256);     // always in write mode
+        private ServerTable table = null;
+        private int seat = -1;
+        private String name;
+        private boolean closed = false;
+        private boolean closeWhenFlushed = false;
+        private TableBroadcast.Subscription subscription = null;     // set if the connection is a spectator
+        private final AtomicBoolean hasUpdates = new AtomicBoolean(false);
+
+        Connection(EventLoop loop, SocketChannel channel) {
+            this.loop = loop;
+            this.channel = channel;
+        }
+
+        void read() {
+            try {
+                if (channel.read(in) < 0) {
+                    close();
+                    return;
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+
+            in.flip();
+            int length;
+            while (!closed && (length = TableProtocol.frameLength(in)) > 0) {
+                int end = in.position() + length;
+                try {
+                    in.position(in.position() + TableProtocol.HEADER_LENGTH);
+                    handle(in.get() & 0xFF, end);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    reject(TableProtocol.BAD_MESSAGE);
+                    closeWhenFlushed = true;
+                }
+                in.position(end);
+            }
+            if (closed) {
+                return;
+            }
+            if (in.position() == 0 && in.limit() == in.capacity()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.min(in.capacity() * 2,
+                        TableProtocol.MAX_FRAME + TableProtocol.HEADER_LENGTH));
+                bigger.put(in);
+                in = bigger;
+            } else {
+                in.compact();
+            }
+        }
+
+        /**
+         * Handles the body of one frame. Every field is checked against the end of the frame
+         * before it is used, so a short frame is rejected instead of reading into the next one.
+         *
+         * @param type - the type of the frame
+         * @param end - the position in the buffer where the frame ends
+         */
+        private void handle(int type, int end) {
+            if (type == TableProtocol.JOIN) {
+                if (in.position() >= end) {
+                    reject(TableProtocol.BAD_MESSAGE);
+                    return;
+                }
+                int length = in.get() & 0xFF;
+                if (table != null || length < 1 || length > 9 * 4 || in.position() + length > end) {
+                    reject(TableProtocol.BAD_NAME);
+                    return;
+                }
+                byte[] bytes = new byte[length];
+                in.get(bytes);
+                name = new String(bytes, StandardCharsets.UTF_8);
+                if (name.length() > 9) {
+                    reject(TableProtocol.BAD_NAME);
+                    return;
+                }
+                loop.join(this);
+
+            } else if (type == TableProtocol.WATCH) {
+                if (in.position() >= end) {
+                    reject(TableProtocol.BAD_MESSAGE);
+                    return;
+                }
+                int tableId = (int) TableProtocol.getVarLong(in);
+                if (in.position() > end) {
+                    reject(TableProtocol.BAD_MESSAGE);
+                    return;
+                }
+                TableBroadcast broadcast = broadcasts.get(tableId);
+                if (table != null || subscription != null || broadcast == null) {
+                    reject(TableProtocol.NO_TABLE);
+                    return;
+                }
+                subscription = broadcast.subscribe(false, this::updatesWaiting);
+
+            } else if (type == TableProtocol.ACTION) {
+                if (in.position() >= end) {
+                    reject(TableProtocol.BAD_MESSAGE);
+                    return;
+                }
+                int action = in.get() & 0xFF;
+                long amount = 0L;
+                if (action == Action.Type.RAISE.ordinal()) {
+                    if (in.position() >= end) {
+                        reject(TableProtocol.BAD_MESSAGE);
+                        return;
+                    }
+                    amount = TableProtocol.getVarLong(in);
+                    if (in.position() > end) {      // the amount ran past the end of the frame
+                        reject(TableProtocol.BAD_MESSAGE);
+                        return;
+                    }
+                }
+                if (table == null || table.engine == null) {
+                    reject(TableProtocol.NOT_YOUR_TURN);
+                    return;
+                }
+                table.act(this, action, amount);
+
+            } else {
+                reject(TableProtocol.BAD_MESSAGE);
+            }
+        }
+
+        /**
+         * Is called by the watched table's thread when there are updates, and has this
+         * connection's loop copy them out on its next pass.
+         */
+        private void updatesWaiting() {
+            if (hasUpdates.compareAndSet(false, true)) {
+                loop.watching.add(this);
+                if (Thread.currentThread() != loop.thread) {
+                    loop.selector.wakeup();
+                }
+            }
+        }
+
+        /**
+         * Copies the waiting updates, as they were encoded, to be written to the spectator.
+         */
+        void copyUpdates() {
+            hasUpdates.set(false);
+            if (closed) {
+                return;
+            }
+            ByteBuffer update;
+            while ((update = subscription.poll()) != null) {
+                if (out.position() > MAX_SPECTATOR_BACKLOG) {
+                    close();    // the socket is not keeping up at all, drop the spectator
+                    return;
+                }
+                reserve(update.remaining()).put(update);
+            }
+            if (subscription.isClosed()) {
+                closeWhenFlushed = true;    // the table is closed
+                if (out.position() == 0) {
+                    close();
+                }
+            }
+        }
+
+        void reject(int reason) {
+            ByteBuffer buffer = reserve(4);
+            buffer.putShort((short) 2);
+            buffer.put((byte) TableProtocol.REJECTED);
+            buffer.put((byte) reason);
+        }
+
+        /**
+         * Makes room for a frame at the end of what is waiting to be written.
+         *
+         * @param bytes - the room needed
+         * @return - the buffer to put the frame in
+         */
+        ByteBuffer reserve(int bytes) {
+            if (out.remaining() < bytes) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+                out.flip();
+                bigger.put(out);
+                out = bigger;
+            }
+            if (out.position() == 0) {
+                loop.dirty.add(this);
+            }
+            return out;
+        }
+
+        void flush() {
+            if (closed) {
+                return;
+            }
+            try {
+                out.flip();
+                channel.write(out);
+                out.compact();
+            } catch (IOException e) {
+                close();
+                return;
+            }
+
+            if (out.position() > 0) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);     // the client is slow, finish later
+            } else if (closeWhenFlushed) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connections.decrementAndGet();
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Could not close connection...");
+            }
+            if (table != null && running) {
+                table.leave(this);
+            }
+            if (subscription != null) {
+                subscription.close();
+            }
+        }
+    }
+
+    /**
+     * A table and the connections sat at it. Is only touched by the loop its connections belong to.
+     */
+    private class ServerTable {
+
+        private final int id;
+        private final Connection[] seats = new Connection[seatsPerTable];
+        private int numOfSeated = 0;
+        private int numOfConnected = 0;
+        private GameEngine engine = null;      // is created once every seat is taken
+        private long handNumber = 0;
+
+        ServerTable(int id) {
+            this.id = id;
+        }
+
+        void add(Connection connection) {
+            for (int i=0; i<seats.length; i++) {
+                if (seats[i] == null) {
+                    seats[i] = connection;
+                    connection.table = this;
+                    connection.seat = i;
+                    numOfSeated++;
+                    numOfConnected++;
+
+                    ByteBuffer buffer = connection.reserve(16);
+                    int start = buffer.position();
+                    buffer.putShort((short) 0);
+                    buffer.put((byte) TableProtocol.SEATED);
+                    TableProtocol.putVarLong(buffer, id);
+                    buffer.put((byte) i);
+                    buffer.put((byte) seats.length);
+                    TableProtocol.endFrame(buffer, start);
+                    return;
+                }
+            }
+            throw new IllegalStateException("Table " + id + " is full");
+        }
+
+        boolean isFull() {
+            return numOfSeated == seats.length;
+        }
+
+        void start() {
+            ArrayList<String> names = new ArrayList<>();
+            for (Connection connection : seats) {
+                names.add(connection.name);
+            }
+            engine = new GameEngine(new Table(names, splitShuffleSource()));
+            engine.getTable().setId(id);
+            TableBroadcast broadcast = new TableBroadcast(id);
+            engine.setBroadcast(broadcast);
+            broadcasts.put(id, broadcast);
+            engine.startHand();
+            advance();
+        }
+
+        void act(Connection connection, int type, long amount) {
+            if (engine.isHandOver() || engine.getCurrentPosition() != connection.seat) {
+                connection.reject(TableProtocol.NOT_YOUR_TURN);
+                return;
+            }
+            if (type == Action.Type.RAISE.ordinal()) {
+                if (!engine.raise(amount)) {
+                    connection.reject(TableProtocol.CANNOT_AFFORD);
+                    return;
+                }
+            } else if (type == Action.Type.CALL.ordinal()) {
+                engine.call();
+            } else if (type == Action.Type.FOLD.ordinal()) {
+                engine.fold();
+            } else {
+                connection.reject(TableProtocol.BAD_MESSAGE);
+                return;
+            }
+            actionsHandled.increment();
+            advance();
+        }
+
+        void leave(Connection connection) {
+            numOfConnected--;
+            if (engine == null) {
+                // the table has not started, so the seat can be given to someone else
+                seats[connection.seat] = null;
+                numOfSeated--;
+            } else if (!engine.isHandOver() && engine.getCurrentPosition() == connection.seat) {
+                advance();
+            }
+        }
+
+        /**
+         * Plays out everything that does not need a client (folds for closed seats, the next
+         * hand once one is over) and sends the new state to every seat.
+         */
+        private void advance() {
+            while (true) {
+                if (engine.isHandOver()) {
+                    handsPlayed.increment();
+                    sendHandOver();
+                    if (engine.isGameOver() || numOfConnected < 2) {
+                        for (Connection connection : seats) {
+                            connection.closeWhenFlushed = true;
+                        }
+                        broadcasts.remove(id);
+                        engine.getBroadcast().close();
+                        return;
+                    }
+                    engine.startHand();
+                    handNumber++;
+                    continue;
+                }
+                if (seats[engine.getCurrentPosition()].closed) {
+                    engine.fold();
+                    continue;
+                }
+                break;
+            }
+            sendState();
+        }
+
+        private void sendState() {
+            Table table = engine.getTable();
+            ArrayList<Player> players = table.getPlayers();
+
+            // everything but the hole cards is encoded once for every seat
+            ByteBuffer shared = seats[0].loop.shared;
+            shared.clear();
+            TableProtocol.putVarLong(shared, handNumber);
+            shared.put((byte) (engine.isHandOver() ? TableProtocol.NO_SEAT : engine.getCurrentPosition()));
+            shared.put((byte) (engine.getTimeInRound() + 1));
+            TableProtocol.putVarLong(shared, table.getPot());
+            TableProtocol.putVarLong(shared, engine.getCurrentHighBet());
+            ArrayList<Card> board = table.getCardsOnTable();
+            shared.put((byte) board.size());
+            for (Card card : board) {
+                shared.put((byte) card.getIndex());
+            }
+            shared.put((byte) players.size());
+            for (int i=0; i<players.size(); i++) {
+                Player player = players.get(i);
+                TableProtocol.putVarLong(shared, player.getBalance());
+                TableProtocol.putVarLong(shared, player.getCurrentBet());
+                shared.put((byte) ((player.isFolded() ? TableProtocol.FOLDED : 0)
+                        | (seats[i].closed ? TableProtocol.GONE : 0)));
+            }
+            shared.flip();
+
+            for (int i=0; i<seats.length; i++) {
+                Connection connection = seats[i];
+                if (connection.closed) {
+                    continue;
+                }
+                long hole = players.get(i).getHand().getCardMask();
+                ByteBuffer buffer = connection.reserve(TableProtocol.HEADER_LENGTH + 3 + shared.remaining());
+                int start = buffer.position();
+                buffer.putShort((short) 0);
+                buffer.put((byte) TableProtocol.STATE);
+                buffer.put((byte) (hole == 0 ? TableProtocol.NO_CARD : Long.numberOfTrailingZeros(hole)));
+                hole &= hole - 1;
+                buffer.put((byte) (hole == 0 ? TableProtocol.NO_CARD : Long.numberOfTrailingZeros(hole)));
+                buffer.put(shared.duplicate());
+                TableProtocol.endFrame(buffer, start);
+            }
+        }
+
+        private void sendHandOver() {
+            sendState();    // the board and balances the hand ended with
+            int[] winners = engine.getWinners();
+            for (Connection connection : seats) {
+                if (connection.closed) {
+                    continue;
+                }
+                ByteBuffer buffer = connection.reserve(TableProtocol.HEADER_LENGTH + 12 + winners.length);
+                int start = buffer.position();
+                buffer.putShort((short) 0);
+                buffer.put((byte) TableProtocol.HAND_OVER);
+                TableProtocol.putVarLong(buffer, engine.getTable().getPot());
+                buffer.put((byte) winners.length);
+                for (int winner : winners) {
+                    buffer.put((byte) winner);
+                }
+                TableProtocol.endFrame(buffer, start);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package Poker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A ShuffleSource that always uses the calling thread's ThreadLocalRandom.
+ * It can be shared by every thread, and split() simply returns the same source.
+ */
+class ThreadLocalShuffleSource implements ShuffleSource {
+
+    static final ThreadLocalShuffleSource INSTANCE = new ThreadLocalShuffleSource();
+
+    private ThreadLocalShuffleSource() {
+        /* use INSTANCE */
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    @Override
+    public ShuffleSource split() {
+        return this;
+    }
+}
@@ -0,0 +1,491 @@
+package Poker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A multi-table tournament. Every entrant starts with the same stack, the blinds go up
+ * by a BlindSchedule, and players who run out of chips are out. When players bust the
+ * tables are balanced: a table with two more players than the smallest table sends a
+ * player there, and once the players left fit at one table fewer a table is broken up
+ * and its players are spread over the others. The last player with chips wins.
+ *
+ * The tables are spread over a few carrier threads like the tables of a TableManager, and
+ * each table is only ever played by its own carrier. Balancing never stops the other tables:
+ * a table only decides to move its own players, between its own hands. It reserves a seat
+ * at the other table by bumping that table's seat count (a compare-and-set, so a table is
+ * never overfilled) and puts the player and their chips in that table's queue of arrivals,
+ * which the other table seats before its next hand. A player who is on the way between
+ * tables is still counted as in the tournament, so no chips are ever lost.
+ *
+ * Every seat of a table is a Player; an empty seat is a player without chips, who sits
+ * every hand out (see GameEngine.startHand()).
+ *
+ * @author Tyler Newman
+ */
+public class Tournament {
+
+    public static final int DEFAULT_SEATS = 9;
+
+    private final ShuffleSource master;
+    private final int numOfShards;
+    private final int seatsPerTable;
+    private final long startingStack;
+    private final BlindSchedule schedule;
+    private final ArrayList<Entrant> entrants = new ArrayList<>();
+
+    private final AtomicInteger playersLeft = new AtomicInteger();
+    private final AtomicInteger tablesOpen = new AtomicInteger();
+    private final LongAdder handsPlayed = new LongAdder();
+    private final LongAdder playersMoved = new LongAdder();
+    private AtomicReferenceArray<Entrant> finishes;     // by place, 0 is the winner
+    private TournamentTable[] tables;
+    private long startNanos;
+    private volatile boolean finished = false;
+    private volatile Throwable failure = null;
+
+    /**
+     * Creates a tournament with nine seats at every table and the standard blind schedule,
+     * with a level every ten hands.
+     *
+     * @param numOfShards - the number of carrier threads the tables are spread over
+     * @param seed - the master seed every table's shuffle is split from
+     * @param startingStack - the chips every entrant starts with
+     */
+    public Tournament(int numOfShards, long seed, long startingStack) {
+        this(numOfShards, ShuffleSource.seeded(seed), DEFAULT_SEATS, startingStack,
+                BlindSchedule.standard(startingStack, BlindSchedule.Clock.HANDS, 10));
+    }
+
+    /**
+     * Creates a tournament.
+     *
+     * @param numOfShards - the number of carrier threads the tables are spread over
+     * @param master - the source every table's shuffle is split from
+     * @param seatsPerTable - the number of seats at every table
+     * @param startingStack - the chips every entrant starts with
+     * @param schedule - the blind levels
+     */
+    public Tournament(int numOfShards, ShuffleSource master, int seatsPerTable, long startingStack,
+                      BlindSchedule schedule) {
+        if (numOfShards < 1) {
+            throw new IllegalArgumentException("There must be at least one shard");
+        }
+        if (seatsPerTable < 2 || seatsPerTable > HandRecorder.MAX_SEATS) {
+            throw new IllegalArgumentException("A table must have between 2 and " + HandRecorder.MAX_SEATS + " seats");
+        }
+        if (startingStack < 1) {
+            throw new IllegalArgumentException("Every entrant must start with some chips");
+        }
+        this.master = master;
+        this.numOfShards = numOfShards;
+        this.seatsPerTable = seatsPerTable;
+        this.startingStack = startingStack;
+        this.schedule = schedule;
+    }
+
+    /**
+     * Enters a player into the tournament. Players can only be entered before it is played.
+     *
+     * @param name - the name of the player
+     * @param strategy - the strategy that plays for them
+     */
+    public synchronized void addEntrant(String name, Strategy strategy) {
+        if (tables != null) {
+            throw new IllegalStateException("Players cannot be entered once the tournament has started");
+        }
+        entrants.add(new Entrant(name, strategy));
+    }
+
+    /**
+     * Seats every entrant, plays the tournament until one player has all of the chips and
+     * waits for it to finish.
+     */
+    public void play() {
+        Thread[] carriers = start();
+        for (Thread carrier : carriers) {
+            try {
+                carrier.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                finished = true;
+                return;
+            }
+        }
+        if (failure != null) {
+            throw new IllegalStateException("A table failed", failure);
+        }
+    }
+
+    /**
+     * Deals the entrants out to as few tables as they fit at (the tables differ by at most
+     * one player) and starts a carrier thread for each shard of tables.
+     */
+    private synchronized Thread[] start() {
+        if (tables != null) {
+            throw new IllegalStateException("The tournament has already been played");
+        }
+        if (entrants.size() < 2) {
+            throw new IllegalStateException("A tournament needs at least two players");
+        }
+
+        int numOfTables = (entrants.size() + seatsPerTable - 1) / seatsPerTable;
+        tables = new TournamentTable[numOfTables];
+        for (int i=0; i<numOfTables; i++) {
+            tables[i] = new TournamentTable(i);
+        }
+        for (int i=0; i<entrants.size(); i++) {
+            tables[i % numOfTables].seat(i / numOfTables, entrants.get(i), startingStack);
+        }
+        finishes = new AtomicReferenceArray<>(entrants.size());
+        playersLeft.set(entrants.size());
+        tablesOpen.set(numOfTables);
+        startNanos = System.nanoTime();
+
+        Thread[] carriers = new Thread[Math.min(numOfShards, numOfTables)];
+        for (int i=0; i<carriers.length; i++) {
+            ArrayList<TournamentTable> shard = new ArrayList<>();
+            for (int t=i; t<numOfTables; t+=carriers.length) {
+                shard.add(tables[t]);
+            }
+            carriers[i] = new Thread(() -> run(shard), "tournament-shard-" + i);
+            carriers[i].setDaemon(true);
+            carriers[i].start();
+        }
+        return carriers;
+    }
+
+    /**
+     * Plays the tables of one shard, a hand at a time each, until the tournament is over.
+     */
+    private void run(ArrayList<TournamentTable> shard) {
+        while (!finished) {
+            boolean played = false;
+            for (TournamentTable table : shard) {
+                try {
+                    played |= table.step();
+                } catch (RuntimeException e) {
+                    failure = e;        // the table's chips cannot be accounted for, so everything stops
+                    finished = true;
+                    return;
+                }
+            }
+            if (!played) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));     // waiting on players to arrive
+            }
+        }
+    }
+
+    /**
+     * Moves a player (and their chips) to the open table with the fewest players.
+     * A seat is reserved there first, so the table can never be overfilled.
+     *
+     * @param from - the table the player is leaving
+     * @param entrant - the player
+     * @param chips - their chips
+     * @param fewerThan - only move to a table that will then have fewer players than this
+     * @return - a boolean indicating if the player was moved
+     */
+    private boolean move(TournamentTable from, Entrant entrant, long chips, int fewerThan) {
+        while (true) {
+            TournamentTable target = null;
+            int fewest = Integer.MAX_VALUE;
+            for (TournamentTable table : tables) {
+                int count = table.seated.get();
+                if (table != from && table.open && count < fewest) {
+                    target = table;
+                    fewest = count;
+                }
+            }
+            if (target == null || fewest + 1 >= fewerThan || fewest >= seatsPerTable) {
+                return false;
+            }
+            if (target.seated.compareAndSet(fewest, fewest + 1)) {
+                target.arrivals.add(new Transfer(entrant, chips));
+                playersMoved.increment();
+                return true;
+            }
+            // someone else just took or freed a seat there, look again
+        }
+    }
+
+    /**
+     * Gets the names of the players who have finished, by place (the winner first).
+     * A place is empty until the player in it has been knocked out.
+     *
+     * @return - the names, null for the places still being played for
+     */
+    public List<String> getPlaces() {
+        if (finishes == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<String> places = new ArrayList<>();
+        for (int i=0; i<finishes.length(); i++) {
+            Entrant entrant = finishes.get(i);
+            places.add(entrant == null ? null : entrant.name);
+        }
+        return places;
+    }
+
+    public String getWinner() {
+        Entrant winner = finishes == null ? null : finishes.get(0);
+        return winner == null ? null : winner.name;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int getPlayersLeft() {
+        return playersLeft.get();
+    }
+
+    public int getTablesOpen() {
+        return tablesOpen.get();
+    }
+
+    public long getHandsPlayed() {
+        return handsPlayed.sum();
+    }
+
+    /**
+     * Gets the number of times a player was moved to another table (to balance or break tables).
+     *
+     * @return - the number of moves
+     */
+    public long getPlayersMoved() {
+        return playersMoved.sum();
+    }
+
+    /**
+     * Gets the chips of every player still in the tournament, seated or on their way to a table.
+     * Is only exact once the tournament is over (or before it starts).
+     *
+     * @return - the total chips
+     */
+    public long getChipsInPlay() {
+        long chips = 0;
+        if (tables != null) {
+            for (TournamentTable table : tables) {
+                for (Player player : table.engine.getTable().getPlayers()) {
+                    chips += player.getBalance();
+                }
+                for (Transfer transfer : table.arrivals) {
+                    chips += transfer.chips;
+                }
+            }
+        }
+        return chips;
+    }
+
+    /**
+     * Someone entered into the tournament and the strategy that plays for them.
+     */
+    private static final class Entrant {
+
+        private final String name;
+        private final Strategy strategy;
+
+        Entrant(String name, Strategy strategy) {
+            this.name = name;
+            this.strategy = strategy;
+        }
+    }
+
+    /**
+     * A player on their way to another table, with their chips.
+     */
+    private static final class Transfer {
+
+        private final Entrant entrant;
+        private final long chips;
+
+        Transfer(Entrant entrant, long chips) {
+            this.entrant = entrant;
+            this.chips = chips;
+        }
+    }
+
+    /**
+     * One table of the tournament. Everything but seated, open and arrivals is only touched
+     * by the table's own carrier.
+     */
+    private class TournamentTable {
+
+        private final int id;
+        private final GameEngine engine;
+        private final ArrayList<Player> players;
+        private final Entrant[] seats;
+        private final AtomicInteger seated = new AtomicInteger();       // players at the table plus seats reserved for arrivals
+        private final ConcurrentLinkedQueue<Transfer> arrivals = new ConcurrentLinkedQueue<>();
+        private volatile boolean open = true;
+        private long hands = 0;
+
+        TournamentTable(int id) {
+            ArrayList<String> names = new ArrayList<>();
+            for (int i=0; i<seatsPerTable; i++) {
+                names.add("Seat " + i);
+            }
+            this.id = id;
+            this.engine = new GameEngine(new Table(names, master.split()));
+            engine.getTable().setId(id);
+            this.players = engine.getTable().getPlayers();
+            this.seats = new Entrant[seatsPerTable];
+            for (Player player : players) {
+                player.setBalance(0);
+            }
+        }
+
+        void seat(int seat, Entrant entrant, long chips) {
+            seats[seat] = entrant;
+            players.get(seat).setBalance(chips);
+            seated.incrementAndGet();
+        }
+
+        /**
+         * Seats anyone who has arrived, balances or breaks the table, and plays one hand
+         * if there are at least two players.
+         *
+         * @return - a boolean indicating if a hand was played
+         */
+        boolean step() {
+            if (!open) {
+                // a player can still arrive after the table was broken up, send them on
+                Transfer transfer;
+                while ((transfer = arrivals.poll()) != null) {
+                    seated.decrementAndGet();
+                    if (!move(this, transfer.entrant, transfer.chips, Integer.MAX_VALUE)) {
+                        seated.incrementAndGet();
+                        arrivals.add(transfer);     // every table is full for now, try again next pass
+                        return false;
+                    }
+                }
+                return false;
+            }
+
+            seatArrivals();
+            if (breakUp() || numOfPlayers() < 2) {
+                return false;
+            }
+            balance();
+            if (numOfPlayers() < 2) {
+                return false;
+            }
+
+            schedule.apply(engine.getBlind(), hands, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            engine.startHand();
+            while (!engine.isHandOver()) {
+                Strategy strategy = seats[engine.getCurrentPosition()].strategy;
+                Action action = strategy.decide(engine.getView(id));
+                if (action == null || !engine.apply(action)) {
+                    engine.call();
+                }
+            }
+            hands++;
+            handsPlayed.increment();
+            knockOut();
+            return true;
+        }
+
+        private void seatArrivals() {
+            Transfer transfer;
+            while ((transfer = arrivals.poll()) != null) {
+                for (int i=0; i<seats.length; i++) {
+                    if (seats[i] == null) {
+                        seats[i] = transfer.entrant;
+                        players.get(i).setBalance(transfer.chips);  // the seat was counted when it was reserved
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Breaks the table up if the players left fit at the other open tables.
+         * Only one table can win the compare-and-set for each table that is no longer needed.
+         */
+        private boolean breakUp() {
+            int numOfOpen = tablesOpen.get();
+            if (numOfOpen < 2 || playersLeft.get() > (numOfOpen - 1) * seatsPerTable
+                    || !tablesOpen.compareAndSet(numOfOpen, numOfOpen - 1)) {
+                return false;
+            }
+
+            this.open = false;
+            for (int i=0; i<seats.length; i++) {
+                if (seats[i] != null) {
+                    moveOut(i, Integer.MAX_VALUE);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Sends one player to the smallest table if this table has two more players than it.
+         * The player who would be the next big blind is the one who moves.
+         */
+        private void balance() {
+            int count = seated.get();
+            for (int step=0; step<seats.length; step++) {
+                int seat = (engine.getBlind().getBigPosition() + step) % seats.length;
+                if (seats[seat] != null) {
+                    moveOut(seat, count);
+                    return;
+                }
+            }
+        }
+
+        private void moveOut(int seat, int fewerThan) {
+            Player player = players.get(seat);
+            if (move(this, seats[seat], player.getBalance(), fewerThan)) {
+                seats[seat] = null;
+                player.setBalance(0);
+                seated.decrementAndGet();
+            } else if (fewerThan == Integer.MAX_VALUE) {
+                // every table is full for now, wait at this (closed) table and go on the next pass
+                arrivals.add(new Transfer(seats[seat], player.getBalance()));
+                seats[seat] = null;
+                player.setBalance(0);
+            }
+        }
+
+        /**
+         * Takes out every player who lost all of their chips in the last hand and gives them
+         * their place. Once one player is left they win the tournament.
+         */
+        private void knockOut() {
+            for (int i=0; i<seats.length; i++) {
+                if (seats[i] != null && players.get(i).getBalance() == 0) {
+                    seated.decrementAndGet();
+                    finishes.set(playersLeft.decrementAndGet(), seats[i]);
+                    seats[i] = null;
+                }
+            }
+            if (playersLeft.get() == 1) {
+                for (Entrant entrant : seats) {
+                    if (entrant != null) {
+                        finishes.set(0, entrant);
+                    }
+                }
+                finished = true;
+            }
+        }
+
+        private int numOfPlayers() {
+            int count = 0;
+            for (Entrant entrant : seats) {
+                if (entrant != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -1,44 +1,95 @@
 package Poker;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Created by ty on 10/6/15.
  * @author Tyler Newman
+ *
+ * Holds a player's money as whole chips (see Chips). Every change to the balance is atomic,
+ * so the same Wallet can be debited by games at more than one table at once without
+ * ever going below zero or losing a chip.
  */
 public class Wallet {
 
-    private double balance;
-    private boolean empty = false;
+    private final AtomicLong balance;
 
     /**
      * This constructor creates a Wallet with a specified amount.
+     *
+     * @param amount - the starting balance in chips
      */
-    public Wallet(double amount) {
-        this.balance = amount;
-        if (this.balance == 0) {
-            empty = true;
+    public Wallet(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("A wallet cannot start with a negative balance");
         }
+        this.balance = new AtomicLong(amount);
     }
 
-    public void addMoney(double amount) {
-        balance += amount;
+    public void addMoney(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Cannot add a negative amount: " + amount);
+        }
+        balance.addAndGet(amount);
     }
 
-    public int subtractMoney(double amount) {
-        if (balance - amount > 0) {
-            balance -= amount;
-            return 0;       // 0 = SUCCESS
+    /**
+     * Takes an amount out of the wallet, or everything that is left if there is not enough.
+     *
+     * @param amount - the amount to take
+     * @return - the amount that was actually taken
+     */
+    public long subtractMoney(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Cannot subtract a negative amount: " + amount);
         }
+        while (true) {
+            long current = balance.get();
+            long taken = Math.min(current, amount);
+            if (balance.compareAndSet(current, current - taken)) {
+                return taken;
+            }
+        }
+    }
 
-        balance = 0;    // Balance cannot be negative
-        empty = true;   // Sets the Wallet's empty status to true
-        return 1;       // 1 = FAILURE
+    /**
+     * Takes an amount out of the wallet only if all of it is there.
+     *
+     * @param amount - the amount to take
+     * @return - a boolean indicating if the amount was taken
+     */
+    public boolean trySubtractMoney(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Cannot subtract a negative amount: " + amount);
+        }
+        while (true) {
+            long current = balance.get();
+            if (current < amount) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - amount)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sets the balance of the wallet (ex: to start a recorded hand with the same money).
+     *
+     * @param amount - the new balance
+     */
+    public void setBalance(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("A wallet cannot have a negative balance");
+        }
+        balance.set(amount);
     }
 
-    public double getBalance() {
-        return balance;
+    public long getBalance() {
+        return balance.get();
     }
 
     public boolean isEmpty() {
-        return empty;
+        return balance.get() == 0;
     }
 }
@@ -0,0 +1,108 @@
+package Poker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Checks how the pots are paid out when a player is called for less than they bet,
+ * so the chips nobody called go back to their owner without making them a winner.
+ *
+ * Run it with the classes from src/ on the classpath (ex: "java -cp out:tests/out Poker.SidePotsTest").
+ * It prints each check and exits with 1 if any of them failed.
+ *
+ * @author Tyler Newman
+ */
+public class SidePotsTest {
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        shortAllInCallerWins();
+        shortAllInCallerLoses();
+        matchedBetsAreNotRefunded();
+        handWithShortAllInCaller();
+
+        System.out.println(failures == 0 ? "All checks passed" : failures + " check(s) failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Seat 0 bets 300 and seat 1 calls all-in for 100 with the better hand.
+     */
+    private static void shortAllInCallerWins() {
+        SidePots pots = new SidePots(2);
+        pots.resolve(new long[] {300, 100}, new int[] {100, 200}, 0);
+
+        check("the caller wins", pots.isWinner(1));
+        check("the bettor is not a winner", !pots.isWinner(0));
+        check("the caller wins the matched chips", pots.getPayout(1) == 200);
+        check("the bettor wins nothing", pots.getPayout(0) == 0);
+        check("the bettor gets the uncalled chips back", pots.getRefund(0) == 200);
+        check("there is only the main pot", pots.getNumOfPots() == 1);
+    }
+
+    /**
+     * Seat 0 bets 300 and seat 1 calls all-in for 100 with the worse hand.
+     */
+    private static void shortAllInCallerLoses() {
+        SidePots pots = new SidePots(2);
+        pots.resolve(new long[] {300, 100}, new int[] {200, 100}, 0);
+
+        check("the bettor wins", pots.isWinner(0));
+        check("the caller is not a winner", !pots.isWinner(1));
+        check("the bettor wins the matched chips", pots.getPayout(0) == 200);
+        check("the bettor gets the uncalled chips back", pots.getRefund(0) == 200);
+    }
+
+    /**
+     * Both seats put in the same amount and tie, so nothing is given back.
+     */
+    private static void matchedBetsAreNotRefunded() {
+        SidePots pots = new SidePots(2);
+        pots.resolve(new long[] {100, 100}, new int[] {200, 200}, 0);
+
+        check("both seats split the pot", pots.isWinner(0) && pots.isWinner(1));
+        check("nothing is given back", pots.getRefund(0) == 0 && pots.getRefund(1) == 0);
+        check("each seat gets half", pots.getPayout(0) == 100 && pots.getPayout(1) == 100);
+    }
+
+    /**
+     * Plays a whole hand heads-up: the small blind (seat 1) raises, the big blind (seat 0)
+     * calls all-in for less and wins with pocket aces.
+     */
+    private static void handWithShortAllInCaller() {
+        ArrayList<String> names = new ArrayList<>(Arrays.asList("B", "A"));
+        Table table = new Table(names);
+        GameEngine engine = new GameEngine(table);
+        Player shortStack = table.getPlayer(0);
+        Player bettor = table.getPlayer(1);
+        shortStack.setBalance(Chips.ofDollars(100));     // more than the big blind, less than the raise
+        long chips = shortStack.getBalance() + bettor.getBalance();
+
+        int[] deck = {
+                Card.indexOf("A-S"), Card.indexOf("7-D"),      // the first card to each seat
+                Card.indexOf("A-H"), Card.indexOf("2-C"),      // the second card to each seat
+                Card.indexOf("3-C"), Card.indexOf("5-D"), Card.indexOf("9-H"),
+                Card.indexOf("J-S"), Card.indexOf("K-C")
+        };
+        engine.startHand(deck, deck.length);
+
+        check("the small blind acts first", engine.getCurrentPosition() == 1);
+        check("the raise is made", engine.raise(Chips.ofDollars(200)));
+        engine.call();
+
+        check("the hand is over", engine.isHandOver());
+        check("only the caller won", Arrays.equals(engine.getWinners(), new int[] {0}));
+        check("the bettor has a loss", bettor.getRecordString().equals("0-1"));
+        check("the caller has a win", shortStack.getRecordString().equals("1-0"));
+        check("the caller doubled up", shortStack.getBalance() == Chips.ofDollars(200));
+        check("no chips were made or lost", shortStack.getBalance() + bettor.getBalance() == chips);
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS  " : "FAIL  ") + name);
+        if (!passed) {
+            failures++;
+        }
+    }
+}